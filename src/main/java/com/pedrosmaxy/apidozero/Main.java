@@ -1,8 +1,21 @@
 package com.pedrosmaxy.apidozero;
 
+import com.pedrosmaxy.apidozero.cluster.Cluster;
+import com.pedrosmaxy.apidozero.cluster.ClusterController;
+import com.pedrosmaxy.apidozero.cluster.OwnedIdUserDAO;
+import com.pedrosmaxy.apidozero.controllers.RequestDeadlines;
 import com.pedrosmaxy.apidozero.controllers.UserController;
 import com.pedrosmaxy.apidozero.dao.UserDAO;
-import com.pedrosmaxy.apidozero.dao.impl.UserDAOSqliteImpl;
+import com.pedrosmaxy.apidozero.dao.impl.AsyncUserDAOAdapter;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOPublishingDecorator;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAORecordingDecorator;
+import com.pedrosmaxy.apidozero.dao.impl.UserStores;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
+import com.pedrosmaxy.apidozero.generator.GenerateCommand;
+import com.pedrosmaxy.apidozero.migration.MigrationCommand;
+import com.pedrosmaxy.apidozero.replication.FollowerWriteRedirectFilter;
+import com.pedrosmaxy.apidozero.replication.ReplicationController;
+import com.pedrosmaxy.apidozero.replication.ReplicationFollower;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
@@ -10,43 +23,68 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Main {
 
-    private final static UserDAO userDAO = new UserDAOSqliteImpl();
-    private static final int SERVER_PORT = 3000;
+    private static final int DEFAULT_SERVER_PORT = 3000;
+    private static final String DEFAULT_DATABASE_URL = "jdbc:sqlite:base.db";
+    private static final int DAO_THREADS = 8;
+    private static final int DAO_QUEUE_CAPACITY = 1_024;
+    private static final String MAX_REQUEST_TIME_PROPERTY = "sun.net.httpserver.maxReqTime";
+    private static final long DEFAULT_BODY_READ_TIMEOUT_SECONDS = 30;
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    /**
+     * Configuration comes from system properties: {@code apidozero.port},
+     * {@code apidozero.storage} (the backend, see {@link UserStores#open}; by default the
+     * SQLite database at the JDBC url {@code apidozero.db}), {@code apidozero.replication.leader}, the
+     * {@code apidozero.deadline.*} request timeouts (see {@link RequestDeadlines}),
+     * {@code apidozero.maxBodyBytes} and {@code apidozero.bodyReadTimeout} (seconds a client
+     * gets to send its whole request). When a leader is set the node runs as a read-only
+     * follower of it. With {@code apidozero.cluster.nodes} (comma-separated base urls) the node
+     * joins that cluster as {@code apidozero.cluster.self}, by default
+     * {@code http://localhost:<port>}. Run with
+     * {@code migrate ...} to copy users between stores, or {@code generate ...} to fill a store
+     * with synthetic users, instead of serving HTTP.
+     */
     public static void main(String[] args) {
-        try {
-            HttpServer server = HttpServer.create(new InetSocketAddress(SERVER_PORT), 0);
-            server.createContext("/api", (exchange) -> {
-                var method = exchange.getRequestMethod();
-                var path = exchange.getRequestURI().getPath();
-
-                Main.log(method + " " + path + " - " + exchange.getRemoteAddress().toString());
-
-
-                if ("GET".equals(method)) {
-                    String responseText = "Hello from API REST Vanilla!\n";
-                    exchange.sendResponseHeaders(200, responseText.getBytes().length);
-                    OutputStream output = exchange.getResponseBody();
-                    output.write(responseText.getBytes());
-                    output.flush();
-                } else {
-                    exchange.sendResponseHeaders(405, -1);
-                }
-
-                exchange.close();
-            });
+        if (args.length > 0 && "migrate".equals(args[0])) {
+            System.exit(MigrationCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "generate".equals(args[0])) {
+            System.exit(GenerateCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
 
-            server.createContext("/api/user", new UserController(userDAO));
+        int port = Integer.getInteger("apidozero.port", DEFAULT_SERVER_PORT);
+        String storage = System.getProperty("apidozero.storage", System.getProperty("apidozero.db", DEFAULT_DATABASE_URL));
+        String leaderUrl = System.getProperty("apidozero.replication.leader");
+        String clusterNodes = System.getProperty("apidozero.cluster.nodes");
+        // The JDK server drops connections whose request takes longer than this to arrive,
+        // so a slow client cannot hold a body read open indefinitely.
+        if (System.getProperty(MAX_REQUEST_TIME_PROPERTY) == null) {
+            System.setProperty(MAX_REQUEST_TIME_PROPERTY,
+                    Long.toString(Long.getLong("apidozero.bodyReadTimeout", DEFAULT_BODY_READ_TIMEOUT_SECONDS)));
+        }
 
-            server.setExecutor(null);
-            server.start();
+        try {
+            Cluster cluster = clusterNodes == null ? null
+                    : Cluster.fromConfig(clusterNodes, System.getProperty("apidozero.cluster.self", "http://localhost:" + port));
+            Node node = start(port, UserStores.open(storage), leaderUrl, cluster);
+            // Lets write-behind and snapshotting stores write what they still hold on exit.
+            Runtime.getRuntime().addShutdownHook(new Thread(node::close, "shutdown"));
 
             System.out.println("=================================================");
-            System.out.println("Server started on port: " + SERVER_PORT);
+            System.out.println("Server started on port: " + node.port());
+            System.out.println("Storage: " + storage);
+            if (leaderUrl != null) {
+                System.out.println("Replicating from leader: " + leaderUrl);
+            }
+            if (cluster != null) {
+                System.out.println("Cluster member " + cluster.self() + " of " + cluster.nodes());
+            }
             System.out.println("=================================================");
 
         } catch (IOException e) {
@@ -55,8 +93,104 @@ public class Main {
         }
     }
 
+    /**
+     * Starts a node serving {@code storage} on {@code port} (0 picks a free port). With a
+     * non-null {@code leaderUrl} the node follows that leader and redirects writes to it.
+     */
+    public static Node start(int port, UserDAO storage, String leaderUrl) throws IOException {
+        return start(port, storage, leaderUrl, null);
+    }
+
+    /**
+     * Like {@link #start(int, UserDAO, String)}, as a member of {@code cluster} when it is not
+     * null: {@code storage} then holds only the users whose ids this node owns.
+     */
+    public static Node start(int port, UserDAO storage, String leaderUrl, Cluster cluster) throws IOException {
+        if (cluster != null && leaderUrl != null) {
+            throw new IllegalArgumentException("A cluster member cannot also be a replication follower");
+        }
+        var changeFeed = new UserChangeFeed();
+        UserDAO recorded = new UserDAORecordingDecorator(storage);
+        var userDAO = new UserDAOPublishingDecorator(cluster != null ? new OwnedIdUserDAO(recorded, cluster) : recorded, changeFeed);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api", (exchange) -> {
+            var method = exchange.getRequestMethod();
+            var path = exchange.getRequestURI().getPath();
+
+            Main.log(method + " " + path + " - " + exchange.getRemoteAddress().toString());
+
+
+            if ("GET".equals(method)) {
+                String responseText = "Hello from API REST Vanilla!\n";
+                exchange.sendResponseHeaders(200, responseText.getBytes().length);
+                OutputStream output = exchange.getResponseBody();
+                output.write(responseText.getBytes());
+                output.flush();
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+
+            exchange.close();
+        });
+
+        var requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        var asyncUserDAO = new AsyncUserDAOAdapter(userDAO,
+                AsyncUserDAOAdapter.boundedExecutor("user-dao", DAO_THREADS, DAO_QUEUE_CAPACITY),
+                requestExecutor);
+        var userContext = server.createContext("/api/user",
+                new UserController(asyncUserDAO, changeFeed, RequestDeadlines.fromSystemProperties(), cluster));
+        if (cluster != null) {
+            server.createContext("/api/cluster", new ClusterController(cluster, userDAO));
+        }
+
+        ReplicationFollower follower = null;
+        if (leaderUrl != null) {
+            follower = new ReplicationFollower(leaderUrl, userDAO).start();
+            userContext.getFilters().add(new FollowerWriteRedirectFilter(leaderUrl));
+            server.createContext("/api/replication", ReplicationController.follower(follower));
+        } else {
+            server.createContext("/api/replication", ReplicationController.leader(userDAO));
+        }
+
+        server.setExecutor(requestExecutor);
+        server.start();
+        return new Node(server, storage, userDAO, follower, asyncUserDAO, requestExecutor, cluster);
+    }
+
+    /** A running server together with the resources it owns, including {@code storage}. */
+    public record Node(HttpServer server, UserDAO storage, UserDAOPublishingDecorator userDAO,
+                       ReplicationFollower follower, AsyncUserDAOAdapter asyncUserDAO,
+                       ExecutorService requestExecutor, Cluster cluster)
+            implements AutoCloseable {
+
+        public int port() {
+            return server.getAddress().getPort();
+        }
+
+        @Override
+        public void close() {
+            if (follower != null) {
+                follower.close();
+            }
+            server.stop(0);
+            asyncUserDAO.close();
+            requestExecutor.shutdownNow();
+            if (cluster != null) {
+                cluster.close();
+            }
+            if (storage instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log("Error closing " + storage.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
     public static void log(String message) {
         String timestamp = LocalDateTime.now().format(formatter);
         System.out.println("[" + timestamp + "] " + message);
     }
-}
\ No newline at end of file
+}
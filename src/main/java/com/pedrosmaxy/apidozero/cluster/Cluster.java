@@ -0,0 +1,246 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.util.Deadline;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This node's view of a statically configured cluster: the {@link HashRing} that says which
+ * node owns each user id, plus the HTTP calls made to the other members. Requests a node sends
+ * on behalf of another carry {@value #HOP_HEADER}, telling the receiver to serve them from its
+ * own partition instead of routing them again.
+ *
+ * <p>Uses {@link HttpClient} rather than {@code HttpURLConnection}, which cannot send PATCH.
+ */
+public class Cluster implements AutoCloseable {
+
+    public static final String HOP_HEADER = "X-Cluster-Hop";
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            "Content-Type", "Accept", "Accept-Encoding", "If-Match");
+    private static final List<String> RELAYED_RESPONSE_HEADERS = List.of(
+            "Content-Type", "Content-Encoding", "ETag", "Vary", "Location",
+            "Access-Control-Allow-Origin", "Access-Control-Expose-Headers");
+
+    private final HashRing ring;
+    private final String self;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(executor)
+            .build();
+
+    /**
+     * @param nodes base urls of every member, e.g. {@code http://localhost:3000}
+     * @param self  the url of this node as it appears in {@code nodes}
+     */
+    public Cluster(List<String> nodes, String self) {
+        List<String> normalized = nodes.stream().map(Cluster::normalize).toList();
+        this.self = normalize(self);
+        if (!normalized.contains(this.self)) {
+            throw new IllegalArgumentException("This node (" + self + ") is not one of the cluster nodes");
+        }
+        this.ring = new HashRing(normalized);
+    }
+
+    /** Parses a comma-separated member list such as {@code apidozero.cluster.nodes}. */
+    public static Cluster fromConfig(String nodes, String self) {
+        return new Cluster(Arrays.stream(nodes.split(",")).map(String::trim).filter(node -> !node.isEmpty()).toList(), self);
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    public String ownerOf(int id) {
+        return ring.owner(id);
+    }
+
+    public boolean owns(int id) {
+        return self.equals(ring.owner(id));
+    }
+
+    /** Whether the request was already routed by another node and must be served locally. */
+    public static boolean isHop(HttpExchange exchange) {
+        return exchange.getRequestHeaders() != null && exchange.getRequestHeaders().containsKey(HOP_HEADER);
+    }
+
+    /**
+     * Whether the request was sent from the host of a member. Host names are resolved on each
+     * call; loopback addresses count too, since this machine runs a member itself.
+     */
+    public boolean isFromMember(HttpExchange exchange) {
+        InetAddress remote = exchange.getRemoteAddress().getAddress();
+        if (remote.isLoopbackAddress()) {
+            return true;
+        }
+        for (String node : ring.nodes()) {
+            try {
+                for (InetAddress address : InetAddress.getAllByName(URI.create(node).getHost())) {
+                    if (address.equals(remote)) {
+                        return true;
+                    }
+                }
+            } catch (UnknownHostException e) {
+                // A member that cannot be resolved right now cannot have sent the request either.
+            }
+        }
+        return false;
+    }
+
+    /** Whether the request was sent by another member, as {@link #transfer} does. */
+    public boolean isFromOtherMember(HttpExchange exchange) {
+        String sender = exchange.getRequestHeaders().getFirst(HOP_HEADER);
+        return sender != null && !sender.equals(self) && ring.nodes().contains(sender) && isFromMember(exchange);
+    }
+
+    /**
+     * Sends the request, body included, to the same path on {@code node} and relays the answer
+     * back unchanged. The current request deadline travels along as {@code X-Request-Timeout}.
+     *
+     * @throws ClusterNodeException if {@code node} cannot be reached in time
+     */
+    public void forward(HttpExchange exchange, String node) {
+        String method = exchange.getRequestMethod();
+        HttpRequest.BodyPublisher body = switch (method) {
+            case "POST", "PUT", "PATCH" -> HttpRequest.BodyPublishers.ofInputStream(exchange::getRequestBody);
+            default -> HttpRequest.BodyPublishers.noBody();
+        };
+        var request = newRequest(node + exchange.getRequestURI()).method(method, body);
+        for (String header : FORWARDED_REQUEST_HEADERS) {
+            String value = exchange.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+
+        HttpResponse<byte[]> response = send(node, request.build());
+        for (String header : RELAYED_RESPONSE_HEADERS) {
+            response.headers().firstValue(header).ifPresent(value -> exchange.getResponseHeaders().set(header, value));
+        }
+        byte[] responseBody = response.body();
+        try {
+            exchange.sendResponseHeaders(response.statusCode(), responseBody.length == 0 ? -1 : responseBody.length);
+            if (responseBody.length > 0) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(responseBody);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the listing with the same query on every other node, each answering from its own
+     * partition in query order.
+     */
+    public CompletableFuture<List<List<User>>> gather(String rawQuery) {
+        String pathAndQuery = "/api/user" + (rawQuery != null ? "?" + rawQuery : "");
+        List<CompletableFuture<List<User>>> parts = new ArrayList<>();
+        for (String node : ring.nodes()) {
+            if (node.equals(self)) {
+                continue;
+            }
+            var request = newRequest(node + pathAndQuery).header("Accept", UserCbor.CONTENT_TYPE).GET().build();
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                HttpResponse<byte[]> response = send(node, request);
+                if (response.statusCode() != 200) {
+                    throw new ClusterNodeException(node, "listing answered " + response.statusCode());
+                }
+                return UserCbor.decodeList(response.body());
+            }, executor));
+        }
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> parts.stream().map(CompletableFuture::join).toList());
+    }
+
+    /** Hands users this node no longer owns to {@code node}, which stores them keeping ids and versions. */
+    public void transfer(String node, List<User> users) {
+        var request = newRequest(node + "/api/cluster/import")
+                .header("Content-Type", UserCbor.CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(UserCbor.encodeListWithVersions(users)))
+                .build();
+        HttpResponse<byte[]> response = send(node, request);
+        if (response.statusCode() != 204) {
+            throw new ClusterNodeException(node, "import answered " + response.statusCode());
+        }
+    }
+
+    /** Deletes a user {@code node} holds, e.g. one deleted here while it was being transferred. */
+    public void remove(String node, int id) {
+        HttpResponse<byte[]> response = send(node, newRequest(node + "/api/user/" + id).DELETE().build());
+        if (response.statusCode() != 200 && response.statusCode() != 404) {
+            throw new ClusterNodeException(node, "delete answered " + response.statusCode());
+        }
+    }
+
+    /**
+     * Combines the parts returned by the nodes in {@code order}. Each part is usually sorted
+     * already, and the sort merges such runs in close to linear time.
+     */
+    public static List<User> merge(List<List<User>> parts, Comparator<User> order) {
+        List<User> merged = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(merged::addAll);
+        merged.sort(order);
+        return merged;
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        Deadline deadline = Deadline.current();
+        var builder = HttpRequest.newBuilder(URI.create(url)).header(HOP_HEADER, self);
+        if (deadline.isSet()) {
+            long remaining = Math.max(1, deadline.remainingMillis());
+            builder.timeout(Duration.ofMillis(remaining)).header("X-Request-Timeout", Long.toString(remaining));
+        } else {
+            builder.timeout(DEFAULT_TIMEOUT);
+        }
+        return builder;
+    }
+
+    private HttpResponse<byte[]> send(String node, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new ClusterNodeException(node, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterNodeException(node, e);
+        }
+    }
+
+    private static String normalize(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,170 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Serves {@code /api/cluster}: the member list as this node sees it, the import endpoint other
+ * nodes hand users to, and {@code POST /api/cluster/rebalance}, which moves every local user
+ * whose id this node no longer owns (e.g. after a node was added) to its new owner.
+ */
+public class ClusterController implements HttpHandler {
+
+    private static final int REBALANCE_BATCH_SIZE = 500;
+
+    private final Cluster cluster;
+    private final UserDAO userDAO;
+
+    public ClusterController(Cluster cluster, UserDAO userDAO) {
+        this.cluster = cluster;
+        this.userDAO = userDAO;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        try {
+            if ("/api/cluster/members".equals(path) && "GET".equals(method)) {
+                sendJson(exchange, 200, membersJson());
+            } else if ("/api/cluster/import".equals(path) && "POST".equals(method)) {
+                if (!cluster.isFromOtherMember(exchange)) {
+                    sendJson(exchange, 403, "{\"error\": \"Only cluster members can import users\"}");
+                    return;
+                }
+                List<User> users = UserCbor.decodeList(exchange.getRequestBody().readAllBytes());
+                String invalid = firstInvalid(users);
+                if (invalid != null) {
+                    sendJson(exchange, 400, "{\"error\": \"" + invalid + "\"}");
+                    return;
+                }
+                userDAO.saveAll(users);
+                Main.log("Imported " + users.size() + " users from " + exchange.getRequestHeaders().getFirst(Cluster.HOP_HEADER));
+                exchange.sendResponseHeaders(204, -1);
+            } else if ("/api/cluster/rebalance".equals(path) && "POST".equals(method)) {
+                if (!cluster.isFromMember(exchange)) {
+                    sendJson(exchange, 403, "{\"error\": \"Rebalance can only be started from a cluster member\"}");
+                    return;
+                }
+                sendJson(exchange, 200, "{\"moved\": " + rebalance() + "}");
+            } else if (path.startsWith("/api/cluster/")) {
+                sendJson(exchange, 405, "{\"error\": \"Method not allowed\"}");
+            } else {
+                sendJson(exchange, 404, "{\"error\": \"Endpoint not found\"}");
+            }
+        } catch (ClusterNodeException e) {
+            Main.log(e.getMessage());
+            sendJson(exchange, 502, "{\"error\": \"" + e.getMessage() + "\"}");
+        } catch (RuntimeException e) {
+            Main.log("Cluster request failed: " + e.getMessage());
+            sendJson(exchange, 500, "{\"error\": \"Internal server error\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Copies each batch of misplaced users to their owners before deleting them here, so a
+     * failed transfer leaves the users where they were.
+     */
+    private int rebalance() {
+        int[] moved = {0};
+        userDAO.scan(0, REBALANCE_BATCH_SIZE, batch -> {
+            Map<String, List<User>> byOwner = new LinkedHashMap<>();
+            for (User user : batch) {
+                String owner = cluster.ownerOf(user.getId());
+                if (!owner.equals(cluster.self())) {
+                    byOwner.computeIfAbsent(owner, node -> new ArrayList<>()).add(user);
+                }
+            }
+            byOwner.forEach((node, users) -> {
+                cluster.transfer(node, users);
+                for (User user : users) {
+                    deleteTransferred(node, user);
+                }
+                moved[0] += users.size();
+            });
+        });
+        Main.log("Rebalance moved " + moved[0] + " users to other nodes");
+        return moved[0];
+    }
+
+    /**
+     * Deletes the local copy only if it is still the version that was transferred. A user
+     * changed in the meantime is transferred again, and one deleted in the meantime is deleted
+     * on its owner too.
+     */
+    private void deleteTransferred(String node, User transferred) {
+        User user = transferred;
+        while (true) {
+            try {
+                userDAO.delete(user.getId(), user.getVersion());
+                return;
+            } catch (VersionConflictException e) {
+                Optional<User> current = userDAO.findById(user.getId());
+                if (current.isEmpty()) {
+                    cluster.remove(node, user.getId());
+                    return;
+                }
+                user = current.get();
+                cluster.transfer(node, List.of(user));
+            } catch (RuntimeException e) {
+                if (userDAO.findById(user.getId()).isPresent()) {
+                    throw e;
+                }
+                cluster.remove(node, user.getId());
+                return;
+            }
+        }
+    }
+
+    /** Why the imported users cannot be stored here, or {@code null} if they all can. */
+    private String firstInvalid(List<User> users) {
+        for (User user : users) {
+            if (user.getId() == null || user.getId() <= 0 || !cluster.owns(user.getId())) {
+                return "User " + user.getId() + " is not owned by " + cluster.self();
+            }
+            if (user.getName() == null || user.getName().isBlank() || user.getEmail() == null || user.getEmail().isBlank()) {
+                return "Name and email are required";
+            }
+            if (user.getVersion() <= 0) {
+                return "User " + user.getId() + " has no version";
+            }
+        }
+        return null;
+    }
+
+    private String membersJson() {
+        var sb = new StringBuilder("{\"self\": \"").append(cluster.self()).append("\", \"nodes\": [");
+        List<String> nodes = cluster.nodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('"').append(nodes.get(i)).append('"');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
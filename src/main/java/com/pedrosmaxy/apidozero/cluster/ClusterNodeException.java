@@ -0,0 +1,15 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+/** Another cluster node could not be reached or did not answer as expected. */
+public class ClusterNodeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ClusterNodeException(String node, String message) {
+        super("Cluster node " + node + ": " + message);
+    }
+
+    public ClusterNodeException(String node, Throwable cause) {
+        super("Cluster node " + node + " unavailable: " + cause.getMessage(), cause);
+    }
+}
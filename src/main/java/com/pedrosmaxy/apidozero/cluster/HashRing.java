@@ -0,0 +1,65 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of user ids onto cluster nodes. Every node is placed at many points
+ * ("virtual nodes") on a 64-bit ring and an id belongs to the first point at or after its
+ * hash, so ids spread evenly and adding a node only moves the ids that now land on it.
+ * Nodes that are given the same member list agree on every owner, whatever the order.
+ */
+public final class HashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final List<String> nodes;
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    public HashRing(List<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        List<String> sorted = new ArrayList<>(nodes);
+        Collections.sort(sorted);
+        for (String node : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+        this.nodes = List.copyOf(sorted);
+    }
+
+    public String owner(int id) {
+        Map.Entry<Long, String> point = ring.ceilingEntry(mix(id));
+        return (point != null ? point : ring.firstEntry()).getValue();
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /** 64-bit FNV-1a, finished with the MurmurHash3 mixer. */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,55 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import com.pedrosmaxy.apidozero.dao.ForwardingUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gives new users ids that this node owns on the ring, so a user is stored on the node that
+ * later requests for its id are routed to. Ids are taken in ascending order, skipping the
+ * ones other nodes own; since every node skips the others' ids, no two nodes hand out the same one.
+ */
+public class OwnedIdUserDAO extends ForwardingUserDAO {
+
+    private final Cluster cluster;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int lastId = -1;
+
+    public OwnedIdUserDAO(UserDAO delegate, Cluster cluster) {
+        super(delegate);
+        this.cluster = cluster;
+    }
+
+    @Override
+    public User create(User newUser) {
+        if (newUser.getName() == null || newUser.getEmail() == null) {
+            throw new RuntimeException("Name and email are required");
+        }
+
+        var stored = new User(newUser.getName(), newUser.getEmail());
+        stored.setId(nextOwnedId());
+        stored.setVersion(1);
+        delegate.saveAll(List.of(stored));
+
+        newUser.setId(stored.getId());
+        newUser.setVersion(1);
+        return newUser;
+    }
+
+    private int nextOwnedId() {
+        lock.lock();
+        try {
+            int id = Math.max(lastId, delegate.stats().lastId());
+            do {
+                id++;
+            } while (!cluster.owns(id));
+            lastId = id;
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
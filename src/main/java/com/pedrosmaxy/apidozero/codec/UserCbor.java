@@ -0,0 +1,300 @@
+package com.pedrosmaxy.apidozero.codec;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal CBOR (RFC 8949) encoding of users. A user is a map with the text keys {@code id},
+ * {@code name} and {@code email}; a list is a definite-length array of such maps. The decoder
+ * accepts any definite-length map, ignoring unknown keys, so clients may omit or add fields.
+ */
+public final class UserCbor {
+
+    public static final String CONTENT_TYPE = "application/cbor";
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+    private static final int MAJOR_TAG = 6;
+    private static final int MAJOR_SIMPLE = 7;
+    private static final int NULL = 0xf6;
+    // Deep enough for any real payload, shallow enough that skipping cannot overflow the stack.
+    private static final int MAX_NESTING = 32;
+    private static final byte[] ID_KEY = text("id");
+    private static final byte[] NAME_KEY = text("name");
+    private static final byte[] EMAIL_KEY = text("email");
+    private static final byte[] VERSION_KEY = text("version");
+
+    private UserCbor() {
+    }
+
+    public static byte[] encode(User user) {
+        var out = new ByteArrayOutputStream(64);
+        writeUser(out, user, false);
+        return out.toByteArray();
+    }
+
+    public static byte[] encodeList(List<User> users) {
+        var out = new ByteArrayOutputStream(16 + users.size() * 48);
+        writeHead(out, MAJOR_ARRAY, users.size());
+        for (User user : users) {
+            writeUser(out, user, false);
+        }
+        return out.toByteArray();
+    }
+
+    /** Like {@link #encodeList(List)} but also carries each user's version, e.g. when moving users between nodes. */
+    public static byte[] encodeListWithVersions(List<User> users) {
+        var out = new ByteArrayOutputStream(16 + users.size() * 56);
+        writeHead(out, MAJOR_ARRAY, users.size());
+        for (User user : users) {
+            writeUser(out, user, true);
+        }
+        return out.toByteArray();
+    }
+
+    public static User decode(byte[] data) {
+        return decode(data, data.length);
+    }
+
+    /** Decodes a user from the first {@code length} bytes of {@code data}, e.g. a reused buffer. */
+    public static User decode(byte[] data, int length) {
+        var reader = new Reader(data, length);
+        User user = reader.readUser();
+        if (reader.pos != length) {
+            throw new IllegalArgumentException("Trailing bytes after CBOR user");
+        }
+        return user;
+    }
+
+    public static List<User> decodeList(byte[] data) {
+        var reader = new Reader(data, data.length);
+        int count = reader.checkedCount(reader.readLength(MAJOR_ARRAY), 1);
+        var users = new ArrayList<User>(Math.min(count, 1_024));
+        for (int i = 0; i < count; i++) {
+            users.add(reader.readUser());
+        }
+        return users;
+    }
+
+    private static void writeUser(ByteArrayOutputStream out, User user, boolean withVersion) {
+        writeHead(out, MAJOR_MAP, withVersion ? 4 : 3);
+        out.writeBytes(ID_KEY);
+        if (user.getId() == null) {
+            out.write(NULL);
+        } else if (user.getId() >= 0) {
+            writeHead(out, MAJOR_UNSIGNED, user.getId());
+        } else {
+            writeHead(out, MAJOR_NEGATIVE, -1L - user.getId());
+        }
+        out.writeBytes(NAME_KEY);
+        writeText(out, user.getName());
+        out.writeBytes(EMAIL_KEY);
+        writeText(out, user.getEmail());
+        if (withVersion) {
+            out.writeBytes(VERSION_KEY);
+            writeHead(out, MAJOR_UNSIGNED, Math.max(user.getVersion(), 0));
+        }
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.write(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHead(out, MAJOR_TEXT, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeHead(ByteArrayOutputStream out, int major, long value) {
+        int type = major << 5;
+        if (value < 24) {
+            out.write(type | (int) value);
+        } else if (value <= 0xff) {
+            out.write(type | 24);
+            out.write((int) value);
+        } else if (value <= 0xffff) {
+            out.write(type | 25);
+            out.write((int) (value >>> 8));
+            out.write((int) value);
+        } else if (value <= 0xffffffffL) {
+            out.write(type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        } else {
+            out.write(type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        }
+    }
+
+    private static byte[] text(String value) {
+        var out = new ByteArrayOutputStream();
+        writeText(out, value);
+        return out.toByteArray();
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private final int limit;
+        private int pos;
+
+        Reader(byte[] data, int limit) {
+            this.data = data;
+            this.limit = limit;
+        }
+
+        User readUser() {
+            long entries = readLength(MAJOR_MAP);
+            var user = new User();
+            for (long i = 0; i < entries; i++) {
+                String key = readText();
+                switch (key) {
+                    case "id" -> user.setId(readId());
+                    case "name" -> user.setName(readNullableText());
+                    case "email" -> user.setEmail(readNullableText());
+                    case "version" -> {
+                        Integer version = readId();
+                        user.setVersion(version != null ? version : 0);
+                    }
+                    default -> skip(0);
+                }
+            }
+            return user;
+        }
+
+        private Integer readId() {
+            if (peekNull()) {
+                return null;
+            }
+            int major = (data[pos] & 0xff) >>> 5;
+            long value = readArgument();
+            if (major == MAJOR_NEGATIVE) {
+                value = -1 - value;
+            } else if (major != MAJOR_UNSIGNED) {
+                throw new IllegalArgumentException("CBOR id must be an integer");
+            }
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("CBOR id out of range");
+            }
+            return (int) value;
+        }
+
+        private String readNullableText() {
+            return peekNull() ? null : readText();
+        }
+
+        private String readText() {
+            int length = checkedLength(readLength(MAJOR_TEXT));
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        private boolean peekNull() {
+            require(1);
+            if ((data[pos] & 0xff) == NULL) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        long readLength(int expectedMajor) {
+            require(1);
+            int major = (data[pos] & 0xff) >>> 5;
+            if (major != expectedMajor) {
+                throw new IllegalArgumentException("Unexpected CBOR major type " + major + ", expected " + expectedMajor);
+            }
+            return readArgument();
+        }
+
+        private long readArgument() {
+            require(1);
+            int info = data[pos++] & 0x1f;
+            if (info < 24) {
+                return info;
+            }
+            int size = switch (info) {
+                case 24 -> 1;
+                case 25 -> 2;
+                case 26 -> 4;
+                case 27 -> 8;
+                default -> throw new IllegalArgumentException("Indefinite-length CBOR items are not supported");
+            };
+            require(size);
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 8) | (data[pos++] & 0xff);
+            }
+            if (value < 0) {
+                throw new IllegalArgumentException("CBOR argument out of range");
+            }
+            return value;
+        }
+
+        /** Skips one value of an unknown key, refusing nesting that could exhaust the stack. */
+        private void skip(int depth) {
+            if (depth > MAX_NESTING) {
+                throw new IllegalArgumentException("CBOR value nested too deeply");
+            }
+            require(1);
+            int major = (data[pos] & 0xff) >>> 5;
+            long argument = readArgument();
+            switch (major) {
+                case MAJOR_UNSIGNED, MAJOR_NEGATIVE, MAJOR_SIMPLE -> {
+                }
+                case MAJOR_BYTES, MAJOR_TEXT -> {
+                    int length = checkedLength(argument);
+                    pos += length;
+                }
+                case MAJOR_ARRAY -> {
+                    int items = checkedCount(argument, 1);
+                    for (int i = 0; i < items; i++) {
+                        skip(depth + 1);
+                    }
+                }
+                case MAJOR_MAP -> {
+                    int items = checkedCount(argument, 2) * 2;
+                    for (int i = 0; i < items; i++) {
+                        skip(depth + 1);
+                    }
+                }
+                case MAJOR_TAG -> skip(depth + 1);
+                default -> throw new IllegalArgumentException("Unknown CBOR major type " + major);
+            }
+        }
+
+        /** An item count, refused when the remaining bytes cannot hold that many items. */
+        int checkedCount(long count, int itemsPerEntry) {
+            if (count > (limit - pos) / itemsPerEntry) {
+                throw new IllegalArgumentException("Truncated CBOR payload");
+            }
+            return (int) count;
+        }
+
+        private int checkedLength(long length) {
+            if (length > limit - pos) {
+                throw new IllegalArgumentException("Truncated CBOR payload");
+            }
+            return (int) length;
+        }
+
+        private void require(int bytes) {
+            if (pos + bytes > limit) {
+                throw new IllegalArgumentException("Truncated CBOR payload");
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.pedrosmaxy.apidozero.controllers;
+
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+
+/**
+ * Encodings the user endpoints can speak. JSON stays the default; CBOR is used when the client
+ * asks for it explicitly, which is what service-to-service callers do.
+ */
+enum PayloadFormat {
+    JSON("application/json"),
+    CBOR(UserCbor.CONTENT_TYPE);
+
+    final String contentType;
+
+    PayloadFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /** Picks the first supported type listed in an {@code Accept} header, ignoring q=0 entries. */
+    static PayloadFormat fromAccept(String accept) {
+        if (accept == null) {
+            return JSON;
+        }
+        for (String range : accept.split(",")) {
+            String[] parts = range.split(";");
+            String type = parts[0].trim().toLowerCase();
+            if (isRejected(parts)) {
+                continue;
+            }
+            if (type.equals(CBOR.contentType)) {
+                return CBOR;
+            }
+            if (type.equals(JSON.contentType) || type.equals("application/*") || type.equals("*/*")) {
+                return JSON;
+            }
+        }
+        return JSON;
+    }
+
+    static PayloadFormat fromContentType(String contentType) {
+        return contentType != null && contentType.trim().toLowerCase().startsWith(CBOR.contentType) ? CBOR : JSON;
+    }
+
+    private static boolean isRejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim().replace(" ", "");
+            if (parameter.matches("q=0(\\.0{0,3})?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
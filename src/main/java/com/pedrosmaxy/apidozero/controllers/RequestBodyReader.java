@@ -0,0 +1,90 @@
+package com.pedrosmaxy.apidozero.controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reads request bodies into pooled byte arrays and hands them straight to a parser, so no
+ * intermediate {@code String} is built. A body is never allowed to grow past the configured
+ * maximum: a larger {@code Content-Length} is refused before reading, and a body without one
+ * is cut off as soon as it crosses the limit.
+ */
+final class RequestBodyReader {
+
+    static final int DEFAULT_MAX_BYTES = 64 * 1024;
+
+    private static final int POOLED_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    @FunctionalInterface
+    interface Parser<T> {
+        /** Parses the first {@code length} bytes of {@code body}; must not keep the array. */
+        T parse(byte[] body, int length);
+    }
+
+    static final class TooLargeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException(int maxBytes) {
+            super("Request body exceeds " + maxBytes + " bytes");
+        }
+    }
+
+    private final int maxBytes;
+    private final ArrayBlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+    RequestBodyReader(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param contentLength the declared length, or a negative value when unknown
+     * @throws TooLargeException if the body is longer than the maximum
+     */
+    <T> T read(InputStream input, long contentLength, Parser<T> parser) {
+        if (contentLength > maxBytes) {
+            throw new TooLargeException(maxBytes);
+        }
+
+        byte[] pooled = borrow();
+        byte[] buffer = contentLength > pooled.length ? new byte[(int) contentLength] : pooled;
+        int length = 0;
+        try {
+            while (true) {
+                if (length == buffer.length) {
+                    if (length > maxBytes) {
+                        throw new TooLargeException(maxBytes);
+                    }
+                    // One byte past the maximum is enough to tell that the body is too large.
+                    byte[] larger = new byte[(int) Math.min((long) buffer.length * 2, maxBytes + 1L)];
+                    System.arraycopy(buffer, 0, larger, 0, length);
+                    buffer = larger;
+                }
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+                if (length == contentLength) {
+                    break;
+                }
+            }
+            if (length > maxBytes) {
+                throw new TooLargeException(maxBytes);
+            }
+            return parser.parse(buffer, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading request body", e);
+        } finally {
+            buffers.offer(pooled);
+        }
+    }
+
+    private byte[] borrow() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[Math.min(POOLED_BUFFER_SIZE, maxBytes + 1)];
+    }
+}
@@ -0,0 +1,78 @@
+package com.pedrosmaxy.apidozero.controllers;
+
+import com.pedrosmaxy.apidozero.util.Deadline;
+
+import java.time.Duration;
+
+/**
+ * How long each kind of request may take before it is answered with 504. Listing all users
+ * gets its own budget since it scales with the dataset; other reads and writes share one each.
+ * A client can ask for a shorter deadline with the {@value #TIMEOUT_HEADER} header (in
+ * milliseconds), but never for a longer one than configured.
+ */
+public final class RequestDeadlines {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /** No deadlines at all; the client header is ignored too. */
+    public static final RequestDeadlines NONE = new RequestDeadlines(null, null, null);
+
+    private final Duration list;
+    private final Duration read;
+    private final Duration write;
+
+    public RequestDeadlines(Duration list, Duration read, Duration write) {
+        this.list = list;
+        this.read = read;
+        this.write = write;
+    }
+
+    /**
+     * Reads {@code apidozero.deadline.list}, {@code apidozero.deadline.read} and
+     * {@code apidozero.deadline.write} (milliseconds, 0 disables), defaulting to 10 s, 2 s and 5 s.
+     */
+    public static RequestDeadlines fromSystemProperties() {
+        return new RequestDeadlines(
+                millisProperty("apidozero.deadline.list", 10_000),
+                millisProperty("apidozero.deadline.read", 2_000),
+                millisProperty("apidozero.deadline.write", 5_000));
+    }
+
+    private static Duration millisProperty(String name, long defaultMillis) {
+        long millis = Long.getLong(name, defaultMillis);
+        return millis > 0 ? Duration.ofMillis(millis) : null;
+    }
+
+    /**
+     * Deadline for a request starting now.
+     *
+     * @param clientTimeout value of the {@value #TIMEOUT_HEADER} header, or {@code null}
+     * @throws IllegalArgumentException if {@code clientTimeout} is not a positive number
+     */
+    Deadline start(String method, boolean list, String clientTimeout) {
+        Duration budget = switch (method) {
+            case "GET", "HEAD" -> list ? this.list : this.read;
+            case "POST", "PUT", "PATCH", "DELETE" -> this.write;
+            default -> null;
+        };
+        if (budget == null) {
+            return Deadline.NONE;
+        }
+
+        if (clientTimeout != null) {
+            long millis;
+            try {
+                millis = Long.parseLong(clientTimeout.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + TIMEOUT_HEADER + " header", e);
+            }
+            if (millis <= 0) {
+                throw new IllegalArgumentException("Invalid " + TIMEOUT_HEADER + " header");
+            }
+            if (millis < budget.toMillis()) {
+                budget = Duration.ofMillis(millis);
+            }
+        }
+        return Deadline.after(budget);
+    }
+}
@@ -0,0 +1,210 @@
+package com.pedrosmaxy.apidozero.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Already-encoded response bodies keyed by resource. Listings record the global data version
+ * they were built from and are only served while that is still the current version, so any
+ * create/change/delete makes them stale without a TTL. Single-user bodies record the user's
+ * own version instead and stay valid until {@link #invalidate} is called for that resource,
+ * so writes to other users leave them alone. Listings are bounded by count and by the total
+ * size of their plain bodies, since every distinct filter gets its own entry. The gzipped form
+ * is built on first use and kept alongside the plain bytes.
+ */
+final class ResponseCache {
+
+    static final int GZIP_MIN_BYTES = 1_024;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> records = new ConcurrentHashMap<>();
+    private final AtomicLong stamps = new AtomicLong();
+    private final AtomicLong clears = new AtomicLong();
+    private final AtomicLong listingBytes = new AtomicLong();
+    private final LongSupplier dataVersion;
+    private final int maxEntries;
+    private final long maxListingBytes;
+
+    ResponseCache(LongSupplier dataVersion, int maxEntries) {
+        this(dataVersion, maxEntries, Long.MAX_VALUE);
+    }
+
+    /** Keeps at most {@code maxListingBytes} of listing bodies; larger ones are not cached. */
+    ResponseCache(LongSupplier dataVersion, int maxEntries, long maxListingBytes) {
+        this.dataVersion = dataVersion;
+        this.maxEntries = maxEntries;
+        this.maxListingBytes = maxListingBytes;
+    }
+
+    long version() {
+        return dataVersion.getAsLong();
+    }
+
+    /** Returns the entry for {@code resource} if it was built from {@code version}. */
+    Entry get(String resource, long version) {
+        Entry entry = entries.get(resource);
+        return entry != null && entry.version == version ? entry : null;
+    }
+
+    Entry put(String resource, long version, String contentType, byte[] body) {
+        return put(resource, version, contentType, body, null);
+    }
+
+    /** Caches a body together with the {@code ETag} it is served with, if any. */
+    Entry put(String resource, long version, String contentType, byte[] body, String etag) {
+        var entry = new Entry(version, 0, contentType, body, etag);
+        if (!hasRoomFor(resource, body.length)) {
+            evictStaleEntries();
+            if (!hasRoomFor(resource, body.length)) {
+                return entry;
+            }
+        }
+        entries.compute(resource, (key, current) -> {
+            if (current != null && current.version > version) {
+                return current;
+            }
+            listingBytes.addAndGet(body.length - (current != null ? current.body.length : 0));
+            return entry;
+        });
+        return entry;
+    }
+
+    private boolean hasRoomFor(String resource, int length) {
+        return (entries.size() < maxEntries || entries.containsKey(resource))
+                && listingBytes.get() + length <= maxListingBytes;
+    }
+
+    private void evictStaleEntries() {
+        long current = version();
+        entries.forEach((resource, existing) -> {
+            if (existing.version != current && entries.remove(resource, existing)) {
+                listingBytes.addAndGet(-existing.body.length);
+            }
+        });
+    }
+
+    /** Returns the body cached for a single-user {@code resource}, unless it was invalidated since. */
+    Entry getRecord(String resource) {
+        Entry entry = records.get(resource);
+        return entry != null && entry.body != null ? entry : null;
+    }
+
+    /**
+     * Identifies the last invalidation of {@code resource}. A read passes it back to
+     * {@link #putRecord} so that its result is dropped if the resource was written meanwhile.
+     */
+    long stamp(String resource) {
+        Entry entry = records.get(resource);
+        return entry != null ? entry.stamp : -1 - clears.get();
+    }
+
+    /**
+     * Caches a single-user body built from the user at {@code version}, read after
+     * {@link #stamp} returned {@code stamp}. An older build never replaces a newer one.
+     */
+    Entry putRecord(String resource, long stamp, long version, String contentType, byte[] body, String etag) {
+        var entry = new Entry(version, stamp, contentType, body, etag);
+        if (makeRoomForRecord(resource)) {
+            return entry;
+        }
+        records.compute(resource, (key, current) -> {
+            long currentStamp = current != null ? current.stamp : -1 - clears.get();
+            if (currentStamp != stamp || current != null && current.body != null && current.version > version) {
+                return current;
+            }
+            return entry;
+        });
+        return entry;
+    }
+
+    /**
+     * Marks a single-user resource as written, so neither its cached body nor the result of a
+     * read already in flight is served afterwards.
+     */
+    void invalidate(String resource) {
+        makeRoomForRecord(resource);
+        records.put(resource, new Entry(0, stamps.incrementAndGet(), null, null, null));
+    }
+
+    /**
+     * Starts the single-user bodies over when they are full. Reads in flight across a clear
+     * see a different stamp afterwards and are not cached. Returns whether it cleared.
+     */
+    private boolean makeRoomForRecord(String resource) {
+        if (records.size() < maxEntries || records.containsKey(resource)) {
+            return false;
+        }
+        clears.incrementAndGet();
+        records.clear();
+        return true;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long listingBytes() {
+        return listingBytes.get();
+    }
+
+    record Key(String resource, long version) {
+    }
+
+    static final class Entry {
+
+        private final long version;
+        private final long stamp;
+        private final String contentType;
+        private final byte[] body;
+        private final String etag;
+        private volatile byte[] gzipped;
+
+        private Entry(long version, long stamp, String contentType, byte[] body, String etag) {
+            this.version = version;
+            this.stamp = stamp;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        long version() {
+            return version;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        byte[] body() {
+            return body;
+        }
+
+        String etag() {
+            return etag;
+        }
+
+        boolean worthCompressing() {
+            return body.length >= GZIP_MIN_BYTES;
+        }
+
+        byte[] gzipped() {
+            byte[] compressed = gzipped;
+            if (compressed == null) {
+                var buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+                try (var gzip = new GZIPOutputStream(buffer)) {
+                    gzip.write(body);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                compressed = buffer.toByteArray();
+                gzipped = compressed;
+            }
+            return compressed;
+        }
+    }
+}
@@ -1,28 +1,101 @@
 package com.pedrosmaxy.apidozero.controllers;
 
 import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.cluster.Cluster;
+import com.pedrosmaxy.apidozero.cluster.ClusterNodeException;
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+import com.pedrosmaxy.apidozero.dao.AsyncUserDAO;
 import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
+import com.pedrosmaxy.apidozero.dao.impl.AsyncUserDAOAdapter;
 import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
+import com.pedrosmaxy.apidozero.jfr.HttpRequestEvent;
+import com.pedrosmaxy.apidozero.util.Deadline;
+import com.pedrosmaxy.apidozero.util.DeadlineExceededException;
+import com.pedrosmaxy.apidozero.util.SingleFlight;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class UserController implements HttpHandler {
 
     private static final Pattern USER_ID_PATTERN = Pattern.compile("/api/user/(\\d+)");
-    private static final Pattern NAME_PATTERN = Pattern.compile("\"name\"\\s*:\\s*\"([^\"]*)\"");
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("\"email\"\\s*:\\s*\"([^\"]*)\"");
-    private final UserDAO userDAO;
+    private static final byte[] NAME_KEY = "\"name\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL_KEY = "\"email\"".getBytes(StandardCharsets.US_ASCII);
+    private static final Pattern ETAG_PATTERN = Pattern.compile("(?:W/)?\"(\\d+)\"");
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    private static final String ALL_USERS = "users";
+    private static final int MAX_CACHED_RESPONSES = 10_000;
+    private static final String CACHE_BYTES_PROPERTY = "apidozero.responseCacheBytes";
+    private static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final String USER_METHODS = "GET, PUT, PATCH, DELETE, OPTIONS";
+    private static final String MAX_BODY_PROPERTY = "apidozero.maxBodyBytes";
+    private final AsyncUserDAO userDAO;
+    private final UserChangeFeed changeFeed;
+    private final RequestDeadlines deadlines;
+    private final Cluster cluster;
+    private final RequestBodyReader bodyReader =
+            new RequestBodyReader(Integer.getInteger(MAX_BODY_PROPERTY, RequestBodyReader.DEFAULT_MAX_BYTES));
+    private final AtomicLong localVersion = new AtomicLong();
+    private final ResponseCache responseCache;
+    private final SingleFlight<ResponseCache.Key, ResponseCache.Entry> listReads = new SingleFlight<>();
+    private final SingleFlight<ResponseCache.Key, Optional<ResponseCache.Entry>> userReads = new SingleFlight<>();
 
     public UserController(UserDAO userDAO) {
+        this(userDAO, null);
+    }
+
+    public UserController(UserDAO userDAO, UserChangeFeed changeFeed) {
+        this(new AsyncUserDAOAdapter(userDAO), changeFeed);
+    }
+
+    public UserController(AsyncUserDAO userDAO, UserChangeFeed changeFeed) {
+        this(userDAO, changeFeed, RequestDeadlines.NONE);
+    }
+
+    public UserController(AsyncUserDAO userDAO, UserChangeFeed changeFeed, RequestDeadlines deadlines) {
+        this(userDAO, changeFeed, deadlines, null);
+    }
+
+    /**
+     * With a {@code cluster}, requests for ids owned by another node are forwarded to it and
+     * listings are gathered from every node; {@code userDAO} then holds this node's partition.
+     */
+    public UserController(AsyncUserDAO userDAO, UserChangeFeed changeFeed, RequestDeadlines deadlines, Cluster cluster) {
         this.userDAO = userDAO;
+        this.changeFeed = changeFeed;
+        this.deadlines = deadlines;
+        this.cluster = cluster;
+        // The feed also sees writes that bypass this controller, e.g. replication.
+        this.responseCache = new ResponseCache(
+                changeFeed != null ? changeFeed::currentSequence : localVersion::get, MAX_CACHED_RESPONSES,
+                Long.getLong(CACHE_BYTES_PROPERTY, DEFAULT_CACHE_BYTES));
+        if (changeFeed != null) {
+            changeFeed.addListener(event -> invalidateUser(event.userId()));
+        }
     }
 
     @Override
@@ -32,149 +105,719 @@ public class UserController implements HttpHandler {
 
         Main.log(method + " " + path + " - " + exchange.getRemoteAddress().toString());
 
+        var event = new HttpRequestEvent();
+        event.begin();
+        CompletableFuture<Void> response;
         try {
-            if ("/api/user".equals(path)) {
-                switch (method) {
-                    case "GET" -> handleGetAllUsers(exchange);
-                    case "POST" -> handleCreateUser(exchange);
-                    case "OPTIONS" -> handleOptionsRequest(exchange);
-                    default -> handleMethodNotAllowed(exchange);
+            response = routeWithinDeadline(exchange, path, method);
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        response.whenComplete((ignored, error) -> {
+            try {
+                if (error != null) {
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof RejectedExecutionException) {
+                        sendJsonResponse(exchange, 503, "{\"error\": \"Server busy, try again later\"}");
+                    } else if (cause instanceof DeadlineExceededException || cause instanceof TimeoutException) {
+                        sendJsonResponse(exchange, 504, "{\"error\": \"Request deadline exceeded\"}");
+                    } else if (cause instanceof ClusterNodeException) {
+                        Main.log(cause.getMessage());
+                        sendJsonResponse(exchange, 502, "{\"error\": \"Cluster node unavailable\"}");
+                    } else {
+                        Main.log("Error during processing: " + cause.getMessage());
+                        sendJsonResponse(exchange, 500, "{\"error\": \"Internal server error\"}");
+                    }
                 }
-                return;
+            } catch (RuntimeException e) {
+                Main.log("Error sending response: " + e.getMessage());
+            } finally {
+                exchange.close();
+                recordRequest(event, exchange, method, path);
+            }
+        });
+    }
+
+    /**
+     * Routes the request under its deadline. The DAO calls made while routing pick it up from
+     * the thread; handlers that call the DAO again from a continuation pass it on explicitly.
+     */
+    private CompletableFuture<Void> routeWithinDeadline(HttpExchange exchange, String path, String method) {
+        Deadline deadline = Deadline.NONE;
+        if (!"/api/user/changes".equals(path)) {
+            try {
+                deadline = deadlines.start(method, "/api/user".equals(path),
+                        requestHeader(exchange, RequestDeadlines.TIMEOUT_HEADER));
+            } catch (IllegalArgumentException e) {
+                sendJsonResponse(exchange, 400, "{\"error\": \"Invalid " + RequestDeadlines.TIMEOUT_HEADER + " header\"}");
+                return DONE;
             }
+        }
+        return Deadline.callWithin(deadline, () -> route(exchange, path, method));
+    }
 
-            Matcher matcher = USER_ID_PATTERN.matcher(path);
-            if (matcher.matches()) {
-                int userId = Integer.parseInt(matcher.group(1));
+    /** Fills and commits the request event; skipped entirely when no recording wants it. */
+    private static void recordRequest(HttpRequestEvent event, HttpExchange exchange, String method, String path) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.method = method;
+        event.route = routeTemplate(path);
+        Matcher matcher = USER_ID_PATTERN.matcher(path);
+        if (matcher.matches()) {
+            try {
+                event.userId = Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
+                // out of range ids are reported without one
+            }
+        }
+        event.status = exchange.getResponseCode();
+        String length = exchange.getResponseHeaders().getFirst("Content-length");
+        event.bytes = length != null ? Long.parseLong(length) : 0;
+        event.commit();
+    }
 
-                switch (method) {
-                    case "GET" -> handleGetUserById(exchange, userId);
-                    case "PUT" -> handleUpdateUser(exchange, userId);
-                    case "DELETE" -> handleDeleteUser(exchange, userId);
-                    case "OPTIONS" -> handleOptionsRequest(exchange);
-                    default -> handleMethodNotAllowed(exchange);
+    private static String routeTemplate(String path) {
+        return switch (path) {
+            case "/api/user", "/api/user/search", "/api/user/changes", "/api/user/count", "/api/user/stats" -> path;
+            default -> USER_ID_PATTERN.matcher(path).matches() ? "/api/user/{id}" : "unmatched";
+        };
+    }
+
+    private CompletableFuture<Void> route(HttpExchange exchange, String path, String method) {
+        if (cluster != null && !Cluster.isHop(exchange)) {
+            Matcher idMatcher = USER_ID_PATTERN.matcher(path);
+            if (idMatcher.matches() && !"OPTIONS".equals(method)) {
+                String owner = cluster.ownerOf(Integer.parseInt(idMatcher.group(1)));
+                if (!owner.equals(cluster.self())) {
+                    Main.log("Forwarding " + method + " " + path + " to " + owner);
+                    cluster.forward(exchange, owner);
+                    return DONE;
                 }
-                return;
             }
+        }
 
-            sendJsonResponse(exchange, 404, "{\"error\": \"Endpoint not found\"}");
-        } catch (Exception e) {
-            Main.log("Error during processing: " + e.getMessage());
-            sendJsonResponse(exchange, 500, "{\"error\": \"Internal server error\"}");
-        } finally {
-            exchange.close();
+        if ("/api/user".equals(path)) {
+            return switch (method) {
+                case "GET" -> handleGetAllUsers(exchange);
+                case "POST" -> handleCreateUser(exchange);
+                case "OPTIONS" -> handleOptionsRequest(exchange);
+                default -> handleMethodNotAllowed(exchange);
+            };
+        }
+
+        if ("/api/user/search".equals(path)) {
+            return switch (method) {
+                case "GET" -> handleSearchUsers(exchange);
+                case "OPTIONS" -> handleOptionsRequest(exchange);
+                default -> handleMethodNotAllowed(exchange);
+            };
         }
+
+        if ("/api/user/count".equals(path) || "/api/user/stats".equals(path)) {
+            return switch (method) {
+                case "GET" -> handleGetStats(exchange, "/api/user/count".equals(path));
+                case "OPTIONS" -> handleOptionsRequest(exchange);
+                default -> handleMethodNotAllowed(exchange);
+            };
+        }
+
+        if ("/api/user/changes".equals(path) && changeFeed != null) {
+            return switch (method) {
+                case "GET" -> handleChangeStream(exchange);
+                case "OPTIONS" -> handleOptionsRequest(exchange);
+                default -> handleMethodNotAllowed(exchange);
+            };
+        }
+
+        Matcher matcher = USER_ID_PATTERN.matcher(path);
+        if (matcher.matches()) {
+            int userId = Integer.parseInt(matcher.group(1));
+
+            return switch (method) {
+                case "GET" -> handleGetUserById(exchange, userId);
+                case "PUT" -> handleUpdateUser(exchange, userId);
+                case "PATCH" -> handlePatchUser(exchange, userId);
+                case "DELETE" -> handleDeleteUser(exchange, userId);
+                case "OPTIONS" -> handleOptionsRequest(exchange, USER_METHODS, "Content-Type, If-Match");
+                default -> handleMethodNotAllowed(exchange);
+            };
+        }
+
+        sendJsonResponse(exchange, 404, "{\"error\": \"Endpoint not found\"}");
+        return DONE;
     }
 
-    private void handleGetAllUsers(HttpExchange exchange) throws IOException {
+    /**
+     * Lists users, optionally filtered and ordered by {@code sort}, {@code order},
+     * {@code nameStartsWith} and {@code emailDomain}; the DAO evaluates the query.
+     */
+    private CompletableFuture<Void> handleGetAllUsers(HttpExchange exchange) {
+        UserQuery query;
+        try {
+            query = listQuery(exchange);
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid sort or order\"}");
+            return DONE;
+        }
+
+        if (cluster != null && !Cluster.isHop(exchange)) {
+            return handleGatherUsers(exchange, query);
+        }
+
         Main.log("Fetching all users");
-        List<User> users = userDAO.getAll();
-        String response = userListToJson(users);
-        sendJsonResponse(exchange, 200, response);
+        PayloadFormat format = responseFormat(exchange);
+        String resource = cacheResource(UserQuery.ALL.equals(query) ? ALL_USERS : ALL_USERS + "?" + query, format);
+        long version = responseCache.version();
+        ResponseCache.Entry cached = responseCache.get(resource, version);
+        if (cached != null) {
+            sendCachedResponse(exchange, cached);
+            return DONE;
+        }
+
+        CompletableFuture<ResponseCache.Entry> load = listReads.execute(new ResponseCache.Key(resource, version),
+                () -> Deadline.callWithin(sharedDeadline(exchange, true), () ->
+                        (UserQuery.ALL.equals(query) ? userDAO.getAll() : userDAO.find(query))
+                                .thenApply(users -> responseCache.put(resource, version, format.contentType, encodeUsers(users, format)))));
+        return withinOwnDeadline(load).thenAccept(entry -> sendCachedResponse(exchange, entry));
     }
 
-    private void handleGetUserById(HttpExchange exchange, int id) throws IOException {
+    /**
+     * Lists the whole cluster: this node's partition plus every other node's, merged in query
+     * order. Not cached, since writes on other nodes never reach this node's cache.
+     */
+    private CompletableFuture<Void> handleGatherUsers(HttpExchange exchange, UserQuery query) {
+        Main.log("Gathering users from " + cluster.nodes().size() + " nodes");
+        return userDAO.find(query)
+                .thenCombine(cluster.gather(exchange.getRequestURI().getRawQuery()), (local, remote) -> {
+                    List<List<User>> parts = new ArrayList<>(remote);
+                    parts.add(local);
+                    return Cluster.merge(parts, query.comparator());
+                })
+                .thenAccept(users -> sendUsers(exchange, 200, users));
+    }
+
+    private UserQuery listQuery(HttpExchange exchange) {
+        String sort = queryParam(exchange, "sort");
+        String order = queryParam(exchange, "order");
+        boolean descending = false;
+        if (order != null) {
+            descending = switch (order.toLowerCase(Locale.ROOT)) {
+                case "asc" -> false;
+                case "desc" -> true;
+                default -> throw new IllegalArgumentException("Invalid order: " + order);
+            };
+        }
+        return new UserQuery(
+                sort == null ? UserQuery.Sort.ID : UserQuery.Sort.valueOf(sort.toUpperCase(Locale.ROOT)),
+                descending,
+                queryParam(exchange, "nameStartsWith"),
+                queryParam(exchange, "emailDomain"));
+    }
+
+    private CompletableFuture<Void> handleGetUserById(HttpExchange exchange, int id) {
         Main.log("Fetching user with ID: " + id);
-        var user = userDAO.findById(id);
+        PayloadFormat format = responseFormat(exchange);
+        String resource = cacheResource("user/" + id, format);
+        long stamp = responseCache.stamp(resource);
+        ResponseCache.Entry cached = responseCache.getRecord(resource);
+        if (cached != null) {
+            sendCachedResponse(exchange, cached);
+            return DONE;
+        }
 
-        if (user.isEmpty()) {
-            sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
-            return;
+        CompletableFuture<Optional<ResponseCache.Entry>> load = userReads.execute(new ResponseCache.Key(resource, stamp),
+                () -> Deadline.callWithin(sharedDeadline(exchange, false), () -> userDAO.findById(id)
+                        .thenApply(user -> user.map(found -> responseCache.putRecord(resource, stamp, found.getVersion(),
+                                format.contentType, encodeUser(found, format), etag(found))))));
+        return withinOwnDeadline(load)
+                .thenAccept(entry -> {
+                    if (entry.isEmpty()) {
+                        sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
+                        return;
+                    }
+
+                    sendCachedResponse(exchange, entry.get());
+                });
+    }
+
+    /**
+     * Deadline for a load that other requests may join: the route's configured budget, so one
+     * client's short {@value RequestDeadlines#TIMEOUT_HEADER} cannot fail everyone else's read.
+     */
+    private Deadline sharedDeadline(HttpExchange exchange, boolean list) {
+        return deadlines.start(exchange.getRequestMethod(), list, null);
+    }
+
+    /** Applies this request's own deadline to a shared load without completing it for the others. */
+    private static <T> CompletableFuture<T> withinOwnDeadline(CompletableFuture<T> shared) {
+        Deadline deadline = Deadline.current();
+        if (!deadline.isSet()) {
+            return shared;
         }
+        return shared.copy().orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+    }
 
-        sendJsonResponse(exchange, 200, userToJson(user.get()));
+    /** Answered from the DAO's counters; unlike listing, this never loads or encodes a user. */
+    private CompletableFuture<Void> handleGetStats(HttpExchange exchange, boolean countOnly) {
+        return userDAO.stats().thenAccept(stats -> sendJsonResponse(exchange, 200, countOnly
+                ? "{\"count\": " + stats.count() + "}"
+                : "{\"count\": " + stats.count() + ", \"lastId\": " + stats.lastId() + "}"));
     }
 
-    private void handleCreateUser(HttpExchange exchange) throws IOException {
+    private CompletableFuture<Void> handleSearchUsers(HttpExchange exchange) {
+        String query = queryParam(exchange, "q");
+        if (query == null || query.isBlank()) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Query parameter q is required\"}");
+            return DONE;
+        }
+
+        int limit = DEFAULT_SEARCH_LIMIT;
+        String limitParam = queryParam(exchange, "limit");
+        if (limitParam != null) {
+            try {
+                limit = Math.min(Math.max(Integer.parseInt(limitParam), 1), MAX_SEARCH_LIMIT);
+            } catch (NumberFormatException e) {
+                sendJsonResponse(exchange, 400, "{\"error\": \"Invalid limit\"}");
+                return DONE;
+            }
+        }
+
+        Main.log("Searching users for: " + query);
+        return userDAO.search(query, limit)
+                .thenAccept(users -> sendUsers(exchange, 200, users));
+    }
+
+    private CompletableFuture<Void> handleCreateUser(HttpExchange exchange) {
         Main.log("Creating new user");
+        User newUser;
         try {
-            String requestBody = readRequestBody(exchange.getRequestBody());
-            Main.log("Request body: " + requestBody);
+            newUser = readUserPayload(exchange);
+        } catch (RequestBodyReader.TooLargeException e) {
+            sendJsonResponse(exchange, 413, "{\"error\": \"Request body too large\"}");
+            return DONE;
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid request body\"}");
+            return DONE;
+        }
 
-            var newUser = parseUserJson(requestBody);
+        if (newUser.getName() == null || newUser.getEmail() == null) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Name and email are required\"}");
+            return DONE;
+        }
 
-            if (newUser.getName() == null || newUser.getEmail() == null) {
-                sendJsonResponse(exchange, 400, "{\"error\": \"Name and email are required\"}");
-                return;
-            }
+        return userDAO.create(newUser)
+                .thenAccept(createdUser -> {
+                    Main.log("User created with ID: " + createdUser.getId());
+                    dataChanged(createdUser.getId());
+                    sendUser(exchange, 201, createdUser);
+                })
+                .exceptionallyCompose(error -> {
+                    Main.log("Error creating user: " + unwrap(error).getMessage());
+                    return sendBadRequest(exchange, error);
+                });
+    }
+
+    private CompletableFuture<Void> handleUpdateUser(HttpExchange exchange, int id) {
+        Main.log("Updating user with ID: " + id);
+        int expectedVersion;
+        try {
+            expectedVersion = expectedVersion(exchange);
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid If-Match header\"}");
+            return DONE;
+        }
 
-            User createdUser = userDAO.create(newUser);
-            Main.log("User created with ID: " + createdUser.getId());
-            sendJsonResponse(exchange, 201, userToJson(createdUser));
-        } catch (RuntimeException e) {
-            Main.log("Error creating user: " + e.getMessage());
-            sendJsonResponse(exchange, 400, "{\"error\": \"" + e.getMessage() + "\"}");
+        User updatedUser;
+        try {
+            updatedUser = readUserPayload(exchange);
+        } catch (RequestBodyReader.TooLargeException e) {
+            sendJsonResponse(exchange, 413, "{\"error\": \"Request body too large\"}");
+            return DONE;
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid request body\"}");
+            return DONE;
         }
+        updatedUser.setId(id);
+
+        Deadline deadline = Deadline.current();
+        return userDAO.findById(id)
+                .thenCompose(existingUser -> {
+                    if (existingUser.isEmpty()) {
+                        sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
+                        return DONE;
+                    }
+
+                    if (updatedUser.getName() == null || updatedUser.getEmail() == null) {
+                        sendJsonResponse(exchange, 400, "{\"error\": \"Name and email are required\"}");
+                        return DONE;
+                    }
+
+                    return Deadline.callWithin(deadline, () -> userDAO.change(updatedUser, id, expectedVersion))
+                            .thenAccept(changed -> {
+                                dataChanged(id);
+                                setETag(exchange, updatedUser);
+                                sendUser(exchange, 200, updatedUser);
+                            });
+                })
+                .exceptionallyCompose(error -> sendBadRequest(exchange, error));
     }
 
-    private void handleUpdateUser(HttpExchange exchange, int id) throws IOException {
-        Main.log("Updating user with ID: " + id);
+    /**
+     * Applies a partial document: only the fields present in the body are changed, without
+     * reading the user first.
+     */
+    private CompletableFuture<Void> handlePatchUser(HttpExchange exchange, int id) {
+        Main.log("Patching user with ID: " + id);
+        int expectedVersion;
         try {
-            var existingUser = userDAO.findById(id);
-            if (existingUser.isEmpty()) {
+            expectedVersion = expectedVersion(exchange);
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid If-Match header\"}");
+            return DONE;
+        }
+
+        User changes;
+        try {
+            changes = readUserPayload(exchange);
+        } catch (RequestBodyReader.TooLargeException e) {
+            sendJsonResponse(exchange, 413, "{\"error\": \"Request body too large\"}");
+            return DONE;
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid request body\"}");
+            return DONE;
+        }
+
+        if (changes.getName() == null && changes.getEmail() == null) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Name or email is required\"}");
+            return DONE;
+        }
+
+        return userDAO.patch(id, changes, expectedVersion)
+                .thenAccept(patched -> {
+                    if (patched.isEmpty()) {
+                        sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
+                        return;
+                    }
+
+                    dataChanged(id);
+                    setETag(exchange, patched.get());
+                    sendUser(exchange, 200, patched.get());
+                })
+                .exceptionallyCompose(error -> sendBadRequest(exchange, error));
+    }
+
+    private CompletableFuture<Void> handleDeleteUser(HttpExchange exchange, int id) {
+        Main.log("Deleting user with ID: " + id);
+        int expectedVersion;
+        try {
+            expectedVersion = expectedVersion(exchange);
+        } catch (IllegalArgumentException e) {
+            sendJsonResponse(exchange, 400, "{\"error\": \"Invalid If-Match header\"}");
+            return DONE;
+        }
+
+        Deadline deadline = Deadline.current();
+        return userDAO.findById(id).thenCompose(user -> {
+            if (user.isEmpty()) {
                 sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
-                return;
+                return DONE;
             }
 
-            String requestBody = readRequestBody(exchange.getRequestBody());
-            var updatedUser = parseUserJson(requestBody);
-            updatedUser.setId(id);
+            return Deadline.callWithin(deadline, () -> userDAO.delete(id, expectedVersion))
+                    .thenAccept(ignored -> {
+                        dataChanged(id);
+                        sendJsonResponse(exchange, 200, "{\"message\": \"User successfully deleted\"}");
+                    });
+        }).exceptionallyCompose(error -> unwrap(error) instanceof VersionConflictException
+                ? sendBadRequest(exchange, error)
+                : CompletableFuture.failedFuture(error));
+    }
+
+    /**
+     * Version required by the request's {@code If-Match} header: {@link UserDAO#ANY_VERSION}
+     * when it is absent or {@code *}, otherwise the number inside an ETag such as {@code "3"}.
+     */
+    private int expectedVersion(HttpExchange exchange) {
+        String ifMatch = requestHeader(exchange, "If-Match");
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return UserDAO.ANY_VERSION;
+        }
+        Matcher matcher = ETAG_PATTERN.matcher(ifMatch.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid If-Match header");
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header", e);
+        }
+    }
+
+    private static String etag(User user) {
+        return user.getVersion() > 0 ? "\"" + user.getVersion() + "\"" : null;
+    }
+
+    private void setETag(HttpExchange exchange, User user) {
+        String etag = etag(user);
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+    }
+
+    /**
+     * Makes cached bodies and reads already in flight for {@code id} and for listings stale
+     * after a completed write. With a change feed this already happened when the write was
+     * published.
+     */
+    private void dataChanged(int id) {
+        if (changeFeed == null) {
+            localVersion.incrementAndGet();
+            invalidateUser(id);
+        }
+    }
+
+    private void invalidateUser(int id) {
+        for (PayloadFormat format : PayloadFormat.values()) {
+            responseCache.invalidate(cacheResource("user/" + id, format));
+        }
+    }
 
-            if (updatedUser.getName() == null || updatedUser.getEmail() == null) {
-                sendJsonResponse(exchange, 400, "{\"error\": \"Name and email are required\"}");
-                return;
+    private CompletableFuture<Void> sendBadRequest(HttpExchange exchange, Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RejectedExecutionException || cause instanceof UncheckedIOException
+                || cause instanceof DeadlineExceededException || cause instanceof TimeoutException) {
+            return CompletableFuture.failedFuture(cause);
+        }
+        if (cause instanceof VersionConflictException) {
+            sendJsonResponse(exchange, 412, "{\"error\": \"" + cause.getMessage() + "\"}");
+            return DONE;
+        }
+        sendJsonResponse(exchange, 400, "{\"error\": \"" + cause.getMessage() + "\"}");
+        return DONE;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private CompletableFuture<Void> handleChangeStream(HttpExchange exchange) {
+        long since = parseResumeSequence(exchange);
+        Main.log("Streaming user changes since sequence " + since);
+
+        try (var subscription = changeFeed.subscribe(since)) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream output = exchange.getResponseBody();
+            if (subscription.isReset()) {
+                writeSseFrame(output, "event: reset\ndata: {}\n\n");
             }
 
-            userDAO.change(updatedUser, id);
-            sendJsonResponse(exchange, 200, userToJson(updatedUser));
-        } catch (RuntimeException e) {
-            sendJsonResponse(exchange, 400, "{\"error\": \"" + e.getMessage() + "\"}");
+            while (true) {
+                UserChangeEvent event = subscription.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event != null) {
+                    writeSseFrame(output, changeEventToSse(event));
+                } else if (subscription.isDropped()) {
+                    writeSseFrame(output, "event: dropped\ndata: {}\n\n");
+                    return DONE;
+                } else {
+                    writeSseFrame(output, ": keepalive\n\n");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Main.log("Change stream closed: " + e.getMessage());
         }
+        return DONE;
     }
 
-    private void handleDeleteUser(HttpExchange exchange, int id) throws IOException {
-        Main.log("Deleting user with ID: " + id);
-        var user = userDAO.findById(id);
+    private long parseResumeSequence(HttpExchange exchange) {
+        String value = requestHeader(exchange, "Last-Event-ID");
+        if (value == null) {
+            value = queryParam(exchange, "since");
+        }
+        try {
+            return value != null ? Long.parseLong(value.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
-        if (user.isEmpty()) {
-            sendJsonResponse(exchange, 404, "{\"error\": \"User not found\"}");
-            return;
+    private String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            if (key.equals(name)) {
+                return eq >= 0 ? URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8) : "";
+            }
         }
+        return null;
+    }
+
+    private String changeEventToSse(UserChangeEvent event) {
+        String data = event.user() != null
+                ? userToJson(event.user())
+                : "{\"id\": " + event.userId() + "}";
+        return "id: " + event.sequence() + "\n" +
+                "event: " + event.type().eventName() + "\n" +
+                "data: " + data + "\n\n";
+    }
+
+    private void writeSseFrame(OutputStream output, String frame) throws IOException {
+        output.write(frame.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
 
-        userDAO.delete(id);
-        sendJsonResponse(exchange, 200, "{\"message\": \"User successfully deleted\"}");
+    private CompletableFuture<Void> handleOptionsRequest(HttpExchange exchange) {
+        return handleOptionsRequest(exchange, "GET, POST, PUT, DELETE, OPTIONS", "Content-Type");
     }
 
-    private void handleOptionsRequest(HttpExchange exchange) throws IOException {
-        exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type");
+    private CompletableFuture<Void> handleOptionsRequest(HttpExchange exchange, String methods, String headers) {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Methods", methods);
+        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", headers);
+        exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "ETag");
         sendJsonResponse(exchange, 204, "");
+        return DONE;
     }
 
-    private void handleMethodNotAllowed(HttpExchange exchange) throws IOException {
+    private CompletableFuture<Void> handleMethodNotAllowed(HttpExchange exchange) {
         sendJsonResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+        return DONE;
     }
 
-    private User parseUserJson(String json) {
-        User user = new User();
+    private PayloadFormat responseFormat(HttpExchange exchange) {
+        return PayloadFormat.fromAccept(requestHeader(exchange, "Accept"));
+    }
 
-        Matcher nameMatcher = NAME_PATTERN.matcher(json);
-        if (nameMatcher.find()) {
-            user.setName(nameMatcher.group(1));
+    private String requestHeader(HttpExchange exchange, String name) {
+        return exchange.getRequestHeaders() != null ? exchange.getRequestHeaders().getFirst(name) : null;
+    }
+
+    private static String cacheResource(String resource, PayloadFormat format) {
+        return format == PayloadFormat.JSON ? resource : resource + "." + format.name().toLowerCase();
+    }
+
+    /**
+     * Reads a user from the request body in the format named by its {@code Content-Type},
+     * parsing straight from the bytes read.
+     *
+     * @throws RequestBodyReader.TooLargeException if the body exceeds the configured maximum
+     */
+    private User readUserPayload(HttpExchange exchange) {
+        boolean cbor = PayloadFormat.fromContentType(requestHeader(exchange, "Content-Type")) == PayloadFormat.CBOR;
+        return bodyReader.read(exchange.getRequestBody(), contentLength(exchange), (body, length) -> {
+            Main.log("Request body: " + length + " bytes");
+            return cbor ? UserCbor.decode(body, length) : parseUserJson(body, length);
+        });
+    }
+
+    private long contentLength(HttpExchange exchange) {
+        String value = requestHeader(exchange, "Content-Length");
+        if (value == null) {
+            return -1;
         }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private byte[] encodeUser(User user, PayloadFormat format) {
+        return switch (format) {
+            case JSON -> toBytes(userToJson(user));
+            case CBOR -> UserCbor.encode(user);
+        };
+    }
 
-        Matcher emailMatcher = EMAIL_PATTERN.matcher(json);
-        if (emailMatcher.find()) {
-            user.setEmail(emailMatcher.group(1));
+    private byte[] encodeUsers(List<User> users, PayloadFormat format) {
+        return switch (format) {
+            case JSON -> toBytes(userListToJson(users));
+            case CBOR -> UserCbor.encodeList(users);
+        };
+    }
+
+    private void sendUser(HttpExchange exchange, int statusCode, User user) {
+        PayloadFormat format = responseFormat(exchange);
+        sendBody(exchange, statusCode, format.contentType, encodeUser(user, format));
+    }
+
+    private void sendUsers(HttpExchange exchange, int statusCode, List<User> users) {
+        PayloadFormat format = responseFormat(exchange);
+        sendBody(exchange, statusCode, format.contentType, encodeUsers(users, format));
+    }
+
+    private void sendBody(HttpExchange exchange, int statusCode, String contentType, byte[] body) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().set("Vary", "Accept");
+            exchange.sendResponseHeaders(statusCode, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
+    private static User parseUserJson(byte[] body, int length) {
+        User user = new User();
+        user.setName(stringField(body, length, NAME_KEY));
+        user.setEmail(stringField(body, length, EMAIL_KEY));
         return user;
     }
 
-    private String readRequestBody(InputStream inputStream) {
-        try (Scanner s = new Scanner(inputStream).useDelimiter("\\A")) {
-            return s.hasNext() ? s.next() : "";
+    /**
+     * Value of the first {@code "key": "value"} pair in the body, or {@code null}. Like the
+     * rest of this hand-written JSON support, values are taken verbatim up to the next quote.
+     */
+    private static String stringField(byte[] body, int length, byte[] key) {
+        candidates:
+        for (int start = 0; start + key.length <= length; start++) {
+            for (int k = 0; k < key.length; k++) {
+                if (body[start + k] != key[k]) {
+                    continue candidates;
+                }
+            }
+            int i = skipWhitespace(body, start + key.length, length);
+            if (i >= length || body[i] != ':') {
+                continue;
+            }
+            i = skipWhitespace(body, i + 1, length);
+            if (i >= length || body[i] != '"') {
+                continue;
+            }
+            int end = i + 1;
+            while (end < length && body[end] != '"') {
+                end++;
+            }
+            if (end < length) {
+                return new String(body, i + 1, end - i - 1, StandardCharsets.UTF_8);
+            }
         }
+        return null;
+    }
+
+    private static int skipWhitespace(byte[] body, int from, int length) {
+        while (from < length && (body[from] == ' ' || body[from] == '\t' || body[from] == '\n'
+                || body[from] == '\r' || body[from] == '\f' || body[from] == 0x0b)) {
+            from++;
+        }
+        return from;
     }
 
     private String userToJson(User user) {
@@ -193,16 +836,48 @@ public class UserController implements HttpHandler {
         return sb.toString();
     }
 
-    private void sendJsonResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-        exchange.sendResponseHeaders(statusCode, !response.isEmpty() ? response.getBytes().length : -1);
+    private void sendCachedResponse(HttpExchange exchange, ResponseCache.Entry entry) {
+        String acceptEncoding = requestHeader(exchange, "Accept-Encoding");
+        boolean gzip = entry.worthCompressing() && acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] body = gzip ? entry.gzipped() : entry.body();
 
-        if (!response.isEmpty()) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", entry.contentType());
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            if (entry.etag() != null) {
+                exchange.getResponseHeaders().set("ETag", entry.etag());
+            }
+            exchange.sendResponseHeaders(200, body.length);
             try (OutputStream output = exchange.getResponseBody()) {
-                output.write(response.getBytes());
-                output.flush();
+                output.write(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] toBytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void sendJsonResponse(HttpExchange exchange, int statusCode, String response) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(statusCode, !response.isEmpty() ? response.getBytes().length : -1);
+
+            if (!response.isEmpty()) {
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(response.getBytes());
+                    output.flush();
+                }
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
\ No newline at end of file
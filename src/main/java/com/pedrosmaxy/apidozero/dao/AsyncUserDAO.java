@@ -0,0 +1,38 @@
+package com.pedrosmaxy.apidozero.dao;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link UserDAO}. Every call returns immediately and the
+ * returned future completes once the underlying I/O has finished.
+ */
+public interface AsyncUserDAO {
+    CompletableFuture<List<User>> getAll();
+
+    CompletableFuture<List<User>> find(UserQuery query);
+
+    CompletableFuture<Optional<User>> findById(int id);
+
+    CompletableFuture<User> create(User newUser);
+
+    CompletableFuture<Optional<User>> change(User updateUser, int id);
+
+    /** Conditional change; fails with {@link VersionConflictException} on a version mismatch. */
+    CompletableFuture<Optional<User>> change(User updateUser, int id, int expectedVersion);
+
+    /** Partial update; completes with empty when the user does not exist. */
+    CompletableFuture<Optional<User>> patch(int id, User changes, int expectedVersion);
+
+    CompletableFuture<Void> delete(int id);
+
+    /** Conditional delete; fails with {@link VersionConflictException} on a version mismatch. */
+    CompletableFuture<Void> delete(int id, int expectedVersion);
+
+    CompletableFuture<List<User>> search(String query, int limit);
+
+    CompletableFuture<UserStats> stats();
+}
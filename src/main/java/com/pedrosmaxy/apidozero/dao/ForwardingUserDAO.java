@@ -0,0 +1,87 @@
+package com.pedrosmaxy.apidozero.dao;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Base class for decorators that add behaviour around another {@link UserDAO}.
+ * Every call is forwarded unchanged; subclasses override only what they wrap.
+ */
+public abstract class ForwardingUserDAO implements UserDAO {
+
+    protected final UserDAO delegate;
+
+    protected ForwardingUserDAO(UserDAO delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate DAO cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    public UserDAO getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<User> find(UserQuery query) {
+        return delegate.find(query);
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public User create(User newUser) {
+        return delegate.create(newUser);
+    }
+
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        return delegate.change(updateUser, id, expectedVersion);
+    }
+
+    @Override
+    public void delete(int id, int expectedVersion) {
+        delegate.delete(id, expectedVersion);
+    }
+
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        return delegate.patch(id, changes, expectedVersion);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public UserStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public void saveAll(List<User> users) {
+        delegate.saveAll(users);
+    }
+
+    @Override
+    public void replaceAll(List<User> users) {
+        delegate.replaceAll(users);
+    }
+
+    @Override
+    public void scan(int afterId, int batchSize, Consumer<List<User>> consumer) {
+        delegate.scan(afterId, batchSize, consumer);
+    }
+}
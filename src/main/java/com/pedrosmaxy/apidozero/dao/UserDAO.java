@@ -2,17 +2,121 @@ package com.pedrosmaxy.apidozero.dao;
 
 import com.pedrosmaxy.apidozero.entities.User;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserDAO {
+
+    /** Expected version that matches whatever version is stored. */
+    int ANY_VERSION = -1;
+
     List<User> getAll();
 
+    /**
+     * Users matching {@code query}, in its order. Backends that can filter where the data
+     * lives override this; the default filters and sorts {@link #getAll()}.
+     */
+    default List<User> find(UserQuery query) {
+        List<User> users = new ArrayList<>(getAll());
+        users.removeIf(user -> !query.matches(user));
+        users.sort(query.comparator());
+        return users;
+    }
+
     Optional<User> findById(int id);
 
     User create(User newUser);
 
-    Optional<User> change(User updateUser, int id);
+    default Optional<User> change(User updateUser, int id) {
+        return change(updateUser, id, ANY_VERSION);
+    }
+
+    /**
+     * Replaces the user only if its stored version is {@code expectedVersion} (or any version
+     * for {@link #ANY_VERSION}), checking and writing in one step. On success the new version
+     * is set on {@code updateUser}.
+     *
+     * @throws VersionConflictException if the stored version differs
+     */
+    Optional<User> change(User updateUser, int id, int expectedVersion);
+
+    default void delete(int id) {
+        delete(id, ANY_VERSION);
+    }
+
+    /**
+     * Deletes the user only if its stored version is {@code expectedVersion}.
+     *
+     * @throws VersionConflictException if the stored version differs
+     */
+    void delete(int id, int expectedVersion);
+
+    default Optional<User> patch(int id, User changes) {
+        return patch(id, changes, ANY_VERSION);
+    }
+
+    /**
+     * Updates only the fields that are non-null in {@code changes}, leaving the others as
+     * stored, with the same version check as {@link #change(User, int, int)}. Email uniqueness
+     * is only checked when the email actually changes.
+     *
+     * @return the user as stored after the update, or empty if there is no user with that id
+     * @throws VersionConflictException if the stored version differs
+     */
+    Optional<User> patch(int id, User changes, int expectedVersion);
+
+    List<User> search(String query, int limit);
+
+    /**
+     * Counters maintained by every write, so answering does not touch the users themselves.
+     */
+    UserStats stats();
+
+    default long count() {
+        return stats().count();
+    }
+
+    /**
+     * Inserts or replaces the given users keeping their ids, e.g. when replicating or
+     * migrating data. Email uniqueness is still enforced.
+     */
+    void saveAll(List<User> users);
+
+    /**
+     * Replaces everything stored with {@code users}, keeping their ids and versions, e.g. when
+     * a follower reloads a snapshot. Backends override this to swap the contents in one step,
+     * so readers never see a partial dataset and a failure leaves the old one; the default
+     * saves the new users and only then deletes the others.
+     */
+    default void replaceAll(List<User> users) {
+        saveAll(users);
+        Set<Integer> kept = new HashSet<>();
+        for (User user : users) {
+            kept.add(user.getId());
+        }
+        for (User user : getAll()) {
+            if (!kept.contains(user.getId())) {
+                delete(user.getId());
+            }
+        }
+    }
 
-    void delete(int id);
+    /**
+     * Hands every user with an id greater than {@code afterId} to {@code consumer} in ascending
+     * id order, at most {@code batchSize} at a time. Backends that can page through their
+     * storage override this so bulk copies do not need the whole dataset in memory.
+     */
+    default void scan(int afterId, int batchSize, Consumer<List<User>> consumer) {
+        List<User> users = new ArrayList<>(getAll());
+        users.removeIf(user -> user.getId() <= afterId);
+        users.sort(Comparator.comparingInt(User::getId));
+        for (int from = 0; from < users.size(); from += batchSize) {
+            consumer.accept(new ArrayList<>(users.subList(from, Math.min(from + batchSize, users.size()))));
+        }
+    }
 }
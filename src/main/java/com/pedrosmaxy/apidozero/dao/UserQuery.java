@@ -0,0 +1,109 @@
+package com.pedrosmaxy.apidozero.dao;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.Comparator;
+
+/**
+ * Filter and order for listing users, evaluated by the DAO so only matching rows leave it.
+ * Name prefixes and email domains are compared ignoring case, and stored folded so equal
+ * queries are equal records; a {@code null} filter matches everything. Name order ignores case too and falls back to id for equal names.
+ * <p>
+ * Only ASCII letters are folded, as SQLite's {@code LIKE}, {@code lower()} and {@code NOCASE}
+ * do, so every backend returns the same users in the same order: "é" and "É" are different
+ * here, though search, which folds all of Unicode, treats them alike.
+ */
+public record UserQuery(Sort sort, boolean descending, String nameStartsWith, String emailDomain) {
+
+    public enum Sort { ID, NAME, EMAIL }
+
+    /** Every user in ascending id order, i.e. what {@link UserDAO#getAll()} returns. */
+    public static final UserQuery ALL = new UserQuery(Sort.ID, false, null, null);
+
+    public UserQuery {
+        if (sort == null) {
+            throw new IllegalArgumentException("Sort cannot be null");
+        }
+        nameStartsWith = nameStartsWith == null || nameStartsWith.isEmpty() ? null : foldAscii(nameStartsWith);
+        emailDomain = emailDomain == null || emailDomain.isEmpty() ? null : foldAscii(emailDomain);
+    }
+
+    public boolean hasFilter() {
+        return nameStartsWith != null || emailDomain != null;
+    }
+
+    public boolean matches(User user) {
+        if (nameStartsWith != null && (user.getName() == null || !startsWithIgnoringAsciiCase(user.getName(), nameStartsWith))) {
+            return false;
+        }
+        if (emailDomain != null) {
+            String email = user.getEmail();
+            int at = email == null ? -1 : email.indexOf('@');
+            return at >= 0 && foldAscii(email.substring(at + 1)).equals(emailDomain);
+        }
+        return true;
+    }
+
+    public Comparator<User> comparator() {
+        Comparator<User> byId = Comparator.comparingInt(User::getId);
+        Comparator<User> order = switch (sort) {
+            case ID -> byId;
+            case NAME -> Comparator.comparing(User::getName, UserQuery::compareIgnoringAsciiCase).thenComparing(byId);
+            case EMAIL -> Comparator.comparing(User::getEmail, UserQuery::compareCodePoints);
+        };
+        return descending ? order.reversed() : order;
+    }
+
+    private static String foldAscii(String value) {
+        var folded = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            folded.append((char) foldAscii(value.charAt(i)));
+        }
+        return folded.toString();
+    }
+
+    private static int foldAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean startsWithIgnoringAsciiCase(String value, String prefix) {
+        if (value.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (foldAscii(value.charAt(i)) != foldAscii(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Like SQLite's {@code NOCASE}: ASCII letters folded, then code point (i.e. UTF-8 byte) order. */
+    private static int compareIgnoringAsciiCase(String a, String b) {
+        return compareCodePoints(a, b, true);
+    }
+
+    /** Like SQLite's {@code BINARY}, which compares UTF-8 bytes rather than UTF-16 chars. */
+    private static int compareCodePoints(String a, String b) {
+        return compareCodePoints(a, b, false);
+    }
+
+    private static int compareCodePoints(String a, String b, boolean foldAscii) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+            if (foldAscii) {
+                ca = foldAscii(ca);
+                cb = foldAscii(cb);
+            }
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -0,0 +1,10 @@
+package com.pedrosmaxy.apidozero.dao;
+
+/**
+ * Collection-wide figures a {@link UserDAO} keeps up to date as it writes.
+ *
+ * @param count  number of users currently stored
+ * @param lastId highest id ever assigned, including ids of users deleted since
+ */
+public record UserStats(long count, int lastId) {
+}
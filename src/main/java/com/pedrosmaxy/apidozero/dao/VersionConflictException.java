@@ -0,0 +1,21 @@
+package com.pedrosmaxy.apidozero.dao;
+
+/**
+ * Thrown by a conditional change or delete when the stored user no longer has the version
+ * the caller expected, i.e. someone else modified it in the meantime.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int currentVersion;
+
+    public VersionConflictException(int id, int expectedVersion, int currentVersion) {
+        super("User " + id + " is at version " + currentVersion + ", expected " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+}
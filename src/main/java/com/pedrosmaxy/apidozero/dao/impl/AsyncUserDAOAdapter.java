@@ -0,0 +1,202 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.AsyncUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.util.Deadline;
+import com.pedrosmaxy.apidozero.util.DeadlineExceededException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs a blocking {@link UserDAO} on a dedicated I/O executor. Results are handed over to
+ * a separate completion executor so that follow-up work (such as writing the HTTP
+ * response) never occupies one of the bounded I/O threads. When the I/O queue is full the
+ * returned future fails with {@link java.util.concurrent.RejectedExecutionException}.
+ * <p>
+ * The caller's {@link Deadline#current() current deadline} travels with each operation: work
+ * still queued when it expires is dropped, the backend sees it while running, and the returned
+ * future fails with a {@link java.util.concurrent.TimeoutException} once it passes.
+ */
+public class AsyncUserDAOAdapter implements AsyncUserDAO, AutoCloseable {
+
+    private static final Executor DIRECT = Runnable::run;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final UserDAO delegate;
+    private final Executor ioExecutor;
+    private final Executor completionExecutor;
+
+    /** Runs every operation on the calling thread; useful for tests and tools. */
+    public AsyncUserDAOAdapter(UserDAO delegate) {
+        this(delegate, DIRECT, DIRECT);
+    }
+
+    public AsyncUserDAOAdapter(UserDAO delegate, Executor ioExecutor, Executor completionExecutor) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate DAO cannot be null");
+        }
+        this.delegate = delegate;
+        this.ioExecutor = ioExecutor;
+        this.completionExecutor = completionExecutor;
+    }
+
+    /**
+     * Fixed-size pool with a bounded queue, sized to what the backend can actually do in
+     * parallel (SQLite serialises writers, the text file backend serialises everything).
+     */
+    public static ExecutorService boundedExecutor(String name, int threads, int queueCapacity) {
+        var counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public UserDAO getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getAll() {
+        return submit(delegate::getAll);
+    }
+
+    @Override
+    public CompletableFuture<List<User>> find(UserQuery query) {
+        return submit(() -> delegate.find(query));
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> findById(int id) {
+        return submit(() -> delegate.findById(id));
+    }
+
+    @Override
+    public CompletableFuture<User> create(User newUser) {
+        return submit(() -> delegate.create(newUser));
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> change(User updateUser, int id) {
+        return submit(() -> delegate.change(updateUser, id));
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> change(User updateUser, int id, int expectedVersion) {
+        if (expectedVersion == UserDAO.ANY_VERSION) {
+            return change(updateUser, id);
+        }
+        return submit(() -> delegate.change(updateUser, id, expectedVersion));
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> patch(int id, User changes, int expectedVersion) {
+        return submit(() -> delegate.patch(id, changes, expectedVersion));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(int id) {
+        return submit(() -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(int id, int expectedVersion) {
+        if (expectedVersion == UserDAO.ANY_VERSION) {
+            return delete(id);
+        }
+        return submit(() -> {
+            delegate.delete(id, expectedVersion);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<User>> search(String query, int limit) {
+        return submit(() -> delegate.search(query, limit));
+    }
+
+    @Override
+    public CompletableFuture<UserStats> stats() {
+        return submit(delegate::stats);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        Deadline deadline = Deadline.current();
+        if (deadline.isExpired()) {
+            return CompletableFuture.failedFuture(new DeadlineExceededException());
+        }
+
+        CompletableFuture<T> io;
+        try {
+            io = CompletableFuture.supplyAsync(() -> runWithin(deadline, operation), ioExecutor);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (deadline.isSet()) {
+            io = io.orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (completionExecutor == DIRECT) {
+            return io;
+        }
+
+        var result = new CompletableFuture<T>();
+        io.whenCompleteAsync((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }, completionExecutor);
+        return result;
+    }
+
+    private static <T> T runWithin(Deadline deadline, Supplier<T> operation) {
+        if (!deadline.isSet()) {
+            return operation.get();
+        }
+        deadline.check();
+        try {
+            return Deadline.callWithin(deadline, operation);
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // e.g. a query cancelled by its timeout: report the deadline, not the symptom
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(e);
+            }
+            throw e;
+        }
+    }
+
+    /** Stops taking calls and waits a bounded time for queued and running ones to finish. */
+    @Override
+    public void close() {
+        if (ioExecutor instanceof ExecutorService service) {
+            service.shutdown();
+            try {
+                service.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.persistence.UserStorePersistence;
+import com.pedrosmaxy.apidozero.search.TrigramIndex;
+import com.pedrosmaxy.apidozero.util.IntObjectHashMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps every user on the heap. Users are stored in an int-keyed open-addressing map and
+ * an email index; single-user reads take an optimistic {@link StampedLock} stamp and only
+ * fall back to a shared read lock when a writer interfered. When a snapshot path is
+ * given the store is loaded from it on startup and written back periodically, in the same
+ * {@code id-name-email-version} format as {@link UserDAOTextFileImpl}.
+ */
+public class UserDAOMemoryImpl implements UserDAO, AutoCloseable {
+
+    private final StampedLock lock = new StampedLock();
+    private final IntObjectHashMap<User> users;
+    private final Map<String, User> usersByEmail;
+    private final TrigramIndex searchIndex = new TrigramIndex();
+    private final String snapshotPath;
+    private final UserStorePersistence persistence;
+    private ScheduledExecutorService snapshotScheduler;
+    // Held for a whole snapshot or checkpoint, so an older one can never finish after a newer one.
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private int lastId;
+
+    public UserDAOMemoryImpl() {
+        this(null, null);
+    }
+
+    /** Loads the store from the snapshot file, which {@link #snapshot()} and {@link #close()} rewrite. */
+    public UserDAOMemoryImpl(String snapshotPath) {
+        this(snapshotPath, null);
+    }
+
+    /** Recovers the store from {@code persistence} and logs every later mutation to it. */
+    public UserDAOMemoryImpl(UserStorePersistence persistence) {
+        this(null, persistence);
+    }
+
+    /** Like {@link #UserDAOMemoryImpl(String)}, also rewriting the snapshot every {@code interval}. */
+    public static UserDAOMemoryImpl withSnapshots(String snapshotPath, Duration interval) {
+        var store = new UserDAOMemoryImpl(snapshotPath);
+        store.scheduleSnapshots(interval);
+        return store;
+    }
+
+    /** Like {@link #UserDAOMemoryImpl(UserStorePersistence)}, also taking a checkpoint every {@code interval}. */
+    public static UserDAOMemoryImpl withPersistence(UserStorePersistence persistence, Duration interval) {
+        var store = new UserDAOMemoryImpl(persistence);
+        store.scheduleSnapshots(interval);
+        return store;
+    }
+
+    private UserDAOMemoryImpl(String snapshotPath, UserStorePersistence persistence) {
+        this.snapshotPath = snapshotPath;
+        this.persistence = persistence;
+
+        List<User> loaded = List.of();
+        if (persistence != null) {
+            var recovered = persistence.recover();
+            loaded = recovered.users();
+            lastId = recovered.lastId();
+        } else if (snapshotPath != null) {
+            loaded = UserTextFile.read(snapshotPath);
+        }
+
+        this.users = new IntObjectHashMap<>(Math.max(16, loaded.size()));
+        this.usersByEmail = new HashMap<>(Math.max(16, loaded.size() * 2));
+        for (User user : loaded) {
+            users.put(user.getId(), user);
+            usersByEmail.put(user.getEmail(), user);
+            lastId = Math.max(lastId, user.getId());
+        }
+        searchIndex.putAll(loaded);
+    }
+
+    /** Started by the factories once the store is fully constructed. */
+    private void scheduleSnapshots(Duration interval) {
+        long millis = interval.toMillis();
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "user-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotScheduler.scheduleWithFixedDelay(this::scheduledSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<User> getAll() {
+        List<User> result;
+        long stamp = lock.readLock();
+        try {
+            result = users.values();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        result.sort(Comparator.comparingInt(User::getId));
+        result.replaceAll(UserDAOMemoryImpl::copy);
+        return result;
+    }
+
+    /** Filters under the read lock so only matching users are copied out and sorted. */
+    @Override
+    public List<User> find(UserQuery query) {
+        List<User> result = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            users.forEachValue(user -> {
+                if (query.matches(user)) {
+                    result.add(copy(user));
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        result.sort(query.comparator());
+        return result;
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            User user = users.get(id);
+            if (lock.validate(stamp)) {
+                return Optional.ofNullable(user).map(UserDAOMemoryImpl::copy);
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return Optional.ofNullable(users.get(id)).map(UserDAOMemoryImpl::copy);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public User create(User newUser) {
+        requireFields(newUser);
+
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            if (usersByEmail.containsKey(newUser.getEmail())) {
+                throw new RuntimeException("Email already in use");
+            }
+
+            User stored = copy(newUser);
+            stored.setId(lastId + 1);
+            stored.setVersion(1);
+            if (persistence != null) {
+                lsn = persistence.logCreate(stored);
+            }
+            lastId++;
+            newUser.setId(stored.getId());
+            newUser.setVersion(1);
+            users.put(stored.getId(), stored);
+            usersByEmail.put(stored.getEmail(), stored);
+            searchIndex.put(stored);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+        return newUser;
+    }
+
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        requireFields(updateUser);
+
+        User stored;
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            User current = users.get(id);
+            if (current == null) {
+                throw new RuntimeException("User not exists");
+            }
+            checkVersion(current, expectedVersion);
+
+            User owner = usersByEmail.get(updateUser.getEmail());
+            if (owner != null && owner.getId() != id) {
+                throw new RuntimeException("Email already in use by another user");
+            }
+
+            stored = copy(updateUser);
+            stored.setId(id);
+            stored.setVersion(current.getVersion() + 1);
+            if (persistence != null) {
+                lsn = persistence.logUpdate(stored);
+            }
+            updateUser.setId(id);
+            updateUser.setVersion(stored.getVersion());
+            users.put(id, stored);
+            usersByEmail.remove(current.getEmail());
+            usersByEmail.put(stored.getEmail(), stored);
+            searchIndex.put(stored);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+        return Optional.of(copy(stored));
+    }
+
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        requireSnapshotWritable(changes);
+
+        User stored;
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            User current = users.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            checkVersion(current, expectedVersion);
+
+            boolean emailChanged = changes.getEmail() != null && !changes.getEmail().equals(current.getEmail());
+            if (emailChanged && usersByEmail.containsKey(changes.getEmail())) {
+                throw new RuntimeException("Email already in use by another user");
+            }
+
+            stored = new User(changes.getName() != null ? changes.getName() : current.getName(),
+                    emailChanged ? changes.getEmail() : current.getEmail());
+            stored.setId(id);
+            stored.setVersion(current.getVersion() + 1);
+            if (persistence != null) {
+                lsn = persistence.logUpdate(stored);
+            }
+            users.put(id, stored);
+            if (emailChanged) {
+                usersByEmail.remove(current.getEmail());
+            }
+            usersByEmail.put(stored.getEmail(), stored);
+            searchIndex.put(stored);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+        return Optional.of(copy(stored));
+    }
+
+    @Override
+    public void delete(int id, int expectedVersion) {
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            User current = users.get(id);
+            if (current == null) {
+                throw new RuntimeException("User not exists");
+            }
+            checkVersion(current, expectedVersion);
+            if (persistence != null) {
+                lsn = persistence.logDelete(id);
+            }
+            User removed = users.remove(id);
+            usersByEmail.remove(removed.getEmail());
+            searchIndex.remove(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+    }
+
+    @Override
+    public void saveAll(List<User> newUsers) {
+        for (User user : newUsers) {
+            requireFields(user);
+        }
+
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (User user : newUsers) {
+                User owner = usersByEmail.get(user.getEmail());
+                if (owner != null && owner.getId().intValue() != user.getId()) {
+                    throw new RuntimeException("Email already in use: " + user.getEmail());
+                }
+            }
+
+            for (User user : newUsers) {
+                User stored = copy(user);
+                if (stored.getVersion() <= 0) {
+                    User existing = users.get(stored.getId());
+                    stored.setVersion(existing != null ? existing.getVersion() + 1 : 1);
+                    user.setVersion(stored.getVersion());
+                }
+                if (persistence != null) {
+                    lsn = persistence.logUpdate(stored);
+                }
+                User previous = users.put(stored.getId(), stored);
+                if (previous != null && usersByEmail.get(previous.getEmail()) == previous) {
+                    usersByEmail.remove(previous.getEmail());
+                }
+                usersByEmail.put(stored.getEmail(), stored);
+                searchIndex.put(stored);
+                lastId = Math.max(lastId, stored.getId());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+    }
+
+    /** The new users are copied and checked first, then swapped in under a single write lock. */
+    @Override
+    public void replaceAll(List<User> newUsers) {
+        List<User> staged = new ArrayList<>(newUsers.size());
+        Map<String, User> stagedByEmail = new HashMap<>(Math.max(16, newUsers.size() * 2));
+        for (User user : newUsers) {
+            requireFields(user);
+            User stored = copy(user);
+            stored.setVersion(Math.max(stored.getVersion(), 1));
+            if (stagedByEmail.put(stored.getEmail(), stored) != null) {
+                throw new RuntimeException("Email already in use: " + stored.getEmail());
+            }
+            staged.add(stored);
+        }
+
+        long lsn = 0;
+        long stamp = lock.writeLock();
+        try {
+            if (persistence != null) {
+                for (User current : users.values()) {
+                    lsn = persistence.logDelete(current.getId());
+                }
+                for (User stored : staged) {
+                    lsn = persistence.logUpdate(stored);
+                }
+            }
+            users.clear();
+            for (User stored : staged) {
+                users.put(stored.getId(), stored);
+                lastId = Math.max(lastId, stored.getId());
+            }
+            usersByEmail.clear();
+            usersByEmail.putAll(stagedByEmail);
+            searchIndex.replaceAll(staged);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        awaitDurable(lsn);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    public UserStats stats() {
+        long stamp = lock.readLock();
+        try {
+            return new UserStats(users.size(), lastId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Persists the current contents: a binary checkpoint when running with a write-ahead
+     * log, otherwise an atomic rewrite of the text snapshot file.
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            if (persistence != null) {
+                checkpoint();
+            } else if (snapshotPath != null) {
+                writeSnapshot();
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() {
+        List<User> current;
+        long stamp = lock.readLock();
+        try {
+            current = users.values();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        current.sort(Comparator.comparingInt(User::getId));
+
+        UserTextFile.writeAtomically(snapshotPath, current);
+    }
+
+    private void checkpoint() {
+        long nextSegment;
+        int checkpointLastId;
+        List<User> current;
+        long stamp = lock.writeLock();
+        try {
+            nextSegment = persistence.beginCheckpoint();
+            checkpointLastId = lastId;
+            current = users.values();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        current.sort(Comparator.comparingInt(User::getId));
+        persistence.completeCheckpoint(nextSegment, checkpointLastId, current);
+    }
+
+    private void awaitDurable(long lsn) {
+        if (persistence != null && lsn > 0) {
+            persistence.awaitDurable(lsn);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        snapshot();
+        if (persistence != null) {
+            persistence.close();
+        }
+    }
+
+    private void requireFields(User user) {
+        if (user.getName() == null || user.getEmail() == null) {
+            throw new RuntimeException("Name and email are required");
+        }
+        requireSnapshotWritable(user);
+    }
+
+    /** Snapshots use the text file's line format, so they cannot hold every name. */
+    private void requireSnapshotWritable(User user) {
+        if (snapshotPath != null) {
+            UserTextFile.requireWritable(user);
+        }
+    }
+
+    private static void checkVersion(User current, int expectedVersion) {
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            throw new VersionConflictException(current.getId(), expectedVersion, current.getVersion());
+        }
+    }
+
+    private static User copy(User user) {
+        var copy = new User(user.getName(), user.getEmail());
+        copy.setId(user.getId());
+        copy.setVersion(user.getVersion());
+        return copy;
+    }
+}
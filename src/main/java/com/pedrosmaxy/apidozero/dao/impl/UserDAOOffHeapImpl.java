@@ -0,0 +1,262 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.search.SearchRanking;
+import com.pedrosmaxy.apidozero.storage.OffHeapUserRecords;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Memory-resident UserDAO whose records live off-heap in {@link OffHeapUserRecords}, so
+ * heap usage and GC work stay flat as the dataset grows. {@link User} objects are only
+ * created when a caller reads them. Search scans the record bytes instead of keeping an
+ * on-heap index, decoding only records that can match.
+ */
+public class UserDAOOffHeapImpl implements UserDAO {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OffHeapUserRecords records;
+    private int lastId;
+
+    public UserDAOOffHeapImpl() {
+        this(new OffHeapUserRecords());
+    }
+
+    public UserDAOOffHeapImpl(OffHeapUserRecords records) {
+        this.records = records;
+        this.lastId = records.maxId();
+    }
+
+    @Override
+    public List<User> getAll() {
+        List<User> users;
+        lock.readLock().lock();
+        try {
+            users = new ArrayList<>(records.size());
+            records.forEach((id, name, email) -> {
+                var user = new User(name, email);
+                user.setId(id);
+                user.setVersion(records.version(id));
+                users.add(user);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        users.sort(Comparator.comparingInt(User::getId));
+        return users;
+    }
+
+    /** Filters while walking the records, so only matches are collected and sorted. */
+    @Override
+    public List<User> find(UserQuery query) {
+        List<User> users = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            records.forEach((id, name, email) -> {
+                var user = new User(name, email);
+                user.setId(id);
+                if (query.matches(user)) {
+                    user.setVersion(records.version(id));
+                    users.add(user);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        users.sort(query.comparator());
+        return users;
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(records.read(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User create(User newUser) {
+        requireFields(newUser);
+
+        lock.writeLock().lock();
+        try {
+            if (records.findIdByEmail(newUser.getEmail()) != 0) {
+                throw new RuntimeException("Email already in use");
+            }
+            newUser.setId(++lastId);
+            newUser.setVersion(1);
+            records.put(newUser.getId(), newUser.getName(), newUser.getEmail(), 1);
+            return newUser;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        requireFields(updateUser);
+
+        lock.writeLock().lock();
+        try {
+            int current = checkVersion(id, expectedVersion);
+            int owner = records.findIdByEmail(updateUser.getEmail());
+            if (owner != 0 && owner != id) {
+                throw new RuntimeException("Email already in use by another user");
+            }
+            updateUser.setId(id);
+            updateUser.setVersion(current + 1);
+            records.put(id, updateUser.getName(), updateUser.getEmail(), current + 1);
+            return Optional.ofNullable(records.read(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            User current = records.read(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            checkVersion(id, expectedVersion);
+
+            if (changes.getEmail() != null && !changes.getEmail().equals(current.getEmail())) {
+                if (records.findIdByEmail(changes.getEmail()) != 0) {
+                    throw new RuntimeException("Email already in use by another user");
+                }
+                current.setEmail(changes.getEmail());
+            }
+            if (changes.getName() != null) {
+                current.setName(changes.getName());
+            }
+            current.setVersion(current.getVersion() + 1);
+            records.put(id, current.getName(), current.getEmail(), current.getVersion());
+            return Optional.of(current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(int id, int expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            checkVersion(id, expectedVersion);
+            records.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(List<User> users) {
+        for (User user : users) {
+            requireFields(user);
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (User user : users) {
+                int owner = records.findIdByEmail(user.getEmail());
+                if (owner != 0 && owner != user.getId()) {
+                    throw new RuntimeException("Email already in use: " + user.getEmail());
+                }
+                if (user.getVersion() <= 0) {
+                    user.setVersion(records.version(user.getId()) + 1);
+                }
+                records.put(user.getId(), user.getName(), user.getEmail(), user.getVersion());
+                lastId = Math.max(lastId, user.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void replaceAll(List<User> users) {
+        Set<String> emails = new HashSet<>();
+        for (User user : users) {
+            requireFields(user);
+            if (!emails.add(user.getEmail())) {
+                throw new RuntimeException("Email already in use: " + user.getEmail());
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<Integer> ids = new ArrayList<>(records.size());
+            records.forEach((id, name, email) -> ids.add(id));
+            for (int id : ids) {
+                records.remove(id);
+            }
+            for (User user : users) {
+                user.setVersion(Math.max(user.getVersion(), 1));
+                records.put(user.getId(), user.getName(), user.getEmail(), user.getVersion());
+                lastId = Math.max(lastId, user.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        String folded = SearchRanking.fold(query).trim();
+        if (folded.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        var matches = new SearchRanking.TopMatches(limit);
+        lock.readLock().lock();
+        try {
+            records.forEachMatching(folded, (id, name, email) -> matches.add(id, name, email,
+                    SearchRanking.score(SearchRanking.fold(name), SearchRanking.fold(email), folded)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches.toList();
+    }
+
+    @Override
+    public UserStats stats() {
+        lock.readLock().lock();
+        try {
+            return new UserStats(records.size(), lastId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Returns the stored version of {@code id} after checking it against the expected one. */
+    private int checkVersion(int id, int expectedVersion) {
+        int current = records.version(id);
+        if (current == 0) {
+            throw new RuntimeException("User not exists");
+        }
+        if (expectedVersion != ANY_VERSION && current != expectedVersion) {
+            throw new VersionConflictException(id, expectedVersion, current);
+        }
+        return current;
+    }
+
+    private static void requireFields(User user) {
+        if (user.getName() == null || user.getEmail() == null) {
+            throw new RuntimeException("Name and email are required");
+        }
+    }
+}
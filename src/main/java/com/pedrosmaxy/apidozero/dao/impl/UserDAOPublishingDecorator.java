@@ -0,0 +1,175 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.ForwardingUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Publishes every successful mutation of the wrapped DAO to a {@link UserChangeFeed}.
+ * Writes to different users run concurrently, so a delegate can batch their durability work.
+ * Writes to the same user are serialised so that its events follow commit order; a create
+ * publishes under its new id's lock once the delegate assigned it. {@link #snapshot} and
+ * {@link #replaceAll} wait for in-flight writes and hold new ones back.
+ */
+public class UserDAOPublishingDecorator extends ForwardingUserDAO {
+
+    private static final int ID_LOCK_STRIPES = 64;
+
+    private final UserChangeFeed changeFeed;
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] idLocks = new ReentrantLock[ID_LOCK_STRIPES];
+
+    public UserDAOPublishingDecorator(UserDAO delegate, UserChangeFeed changeFeed) {
+        super(delegate);
+        this.changeFeed = changeFeed;
+        for (int i = 0; i < idLocks.length; i++) {
+            idLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public UserChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    @Override
+    public User create(User newUser) {
+        snapshotLock.readLock().lock();
+        try {
+            User created = delegate.create(newUser);
+            ReentrantLock idLock = idLock(created.getId());
+            idLock.lock();
+            try {
+                changeFeed.publish(UserChangeEvent.Type.CREATED, created.getId(), created);
+            } finally {
+                idLock.unlock();
+            }
+            return created;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        snapshotLock.readLock().lock();
+        ReentrantLock idLock = idLock(id);
+        idLock.lock();
+        try {
+            var changed = delegate.change(updateUser, id, expectedVersion);
+            changed.ifPresent(user -> changeFeed.publish(UserChangeEvent.Type.UPDATED, id, user));
+            return changed;
+        } finally {
+            idLock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        snapshotLock.readLock().lock();
+        ReentrantLock idLock = idLock(id);
+        idLock.lock();
+        try {
+            var patched = delegate.patch(id, changes, expectedVersion);
+            patched.ifPresent(user -> changeFeed.publish(UserChangeEvent.Type.UPDATED, id, user));
+            return patched;
+        } finally {
+            idLock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(int id, int expectedVersion) {
+        snapshotLock.readLock().lock();
+        ReentrantLock idLock = idLock(id);
+        idLock.lock();
+        try {
+            delegate.delete(id, expectedVersion);
+            changeFeed.publish(UserChangeEvent.Type.DELETED, id, null);
+        } finally {
+            idLock.unlock();
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /** Holds the locks of every id in {@code users}, taken in stripe order. */
+    @Override
+    public void saveAll(List<User> users) {
+        Set<Integer> stripes = new TreeSet<>();
+        for (User user : users) {
+            stripes.add(Math.floorMod(user.getId(), ID_LOCK_STRIPES));
+        }
+
+        snapshotLock.readLock().lock();
+        for (int stripe : stripes) {
+            idLocks[stripe].lock();
+        }
+        try {
+            delegate.saveAll(users);
+            for (User user : users) {
+                changeFeed.publish(UserChangeEvent.Type.UPDATED, user.getId(), user);
+            }
+        } finally {
+            for (int stripe : stripes) {
+                idLocks[stripe].unlock();
+            }
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /** Publishes a deletion for every user that is gone and an update for every user kept. */
+    @Override
+    public void replaceAll(List<User> users) {
+        snapshotLock.writeLock().lock();
+        try {
+            List<User> previous = delegate.getAll();
+            delegate.replaceAll(users);
+            Set<Integer> kept = new HashSet<>();
+            for (User user : users) {
+                kept.add(user.getId());
+            }
+            for (User user : previous) {
+                if (!kept.contains(user.getId())) {
+                    changeFeed.publish(UserChangeEvent.Type.DELETED, user.getId(), null);
+                }
+            }
+            for (User user : users) {
+                changeFeed.publish(UserChangeEvent.Type.UPDATED, user.getId(), user);
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the full contents together with the feed sequence they correspond to. Writers
+     * are held back for the duration of the read, so replaying events after the returned
+     * sequence on top of the users reproduces the current state exactly.
+     */
+    public Snapshot snapshot() {
+        snapshotLock.writeLock().lock();
+        try {
+            return new Snapshot(changeFeed.currentSequence(), delegate.getAll());
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    public record Snapshot(long sequence, List<User> users) {
+    }
+
+    private ReentrantLock idLock(int id) {
+        return idLocks[Math.floorMod(id, ID_LOCK_STRIPES)];
+    }
+}
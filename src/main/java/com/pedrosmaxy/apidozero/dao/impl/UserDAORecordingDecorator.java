@@ -0,0 +1,131 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.ForwardingUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.jfr.UserDaoCallEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Emits a {@link UserDaoCallEvent} for every call into the wrapped DAO. When no Flight
+ * Recorder recording has the event enabled, {@code shouldCommit()} is false and the event
+ * fields are never filled, so the wrapper can stay in place in production.
+ */
+public class UserDAORecordingDecorator extends ForwardingUserDAO {
+
+    private final String backend;
+
+    public UserDAORecordingDecorator(UserDAO delegate) {
+        super(delegate);
+        this.backend = delegate.getClass().getSimpleName();
+    }
+
+    @Override
+    public List<User> getAll() {
+        return record("getAll", 0, delegate::getAll, List::size);
+    }
+
+    @Override
+    public List<User> find(UserQuery query) {
+        return record("find", 0, () -> delegate.find(query), List::size);
+    }
+
+    @Override
+    public Optional<User> findById(int id) {
+        return record("findById", id, () -> delegate.findById(id), UserDAORecordingDecorator::rows);
+    }
+
+    @Override
+    public User create(User newUser) {
+        return record("create", 0, () -> delegate.create(newUser), user -> 1);
+    }
+
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        return record("change", id, () -> delegate.change(updateUser, id, expectedVersion), UserDAORecordingDecorator::rows);
+    }
+
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        return record("patch", id, () -> delegate.patch(id, changes, expectedVersion), UserDAORecordingDecorator::rows);
+    }
+
+    @Override
+    public void delete(int id, int expectedVersion) {
+        record("delete", id, () -> {
+            delegate.delete(id, expectedVersion);
+            return Boolean.TRUE;
+        }, deleted -> 1);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        return record("search", 0, () -> delegate.search(query, limit), List::size);
+    }
+
+    @Override
+    public UserStats stats() {
+        return record("stats", 0, delegate::stats, stats -> 1);
+    }
+
+    @Override
+    public void saveAll(List<User> users) {
+        record("saveAll", 0, () -> {
+            delegate.saveAll(users);
+            return users;
+        }, List::size);
+    }
+
+    @Override
+    public void replaceAll(List<User> users) {
+        record("replaceAll", 0, () -> {
+            delegate.replaceAll(users);
+            return users;
+        }, List::size);
+    }
+
+    @Override
+    public void scan(int afterId, int batchSize, Consumer<List<User>> consumer) {
+        int[] rows = {0};
+        record("scan", 0, () -> {
+            delegate.scan(afterId, batchSize, batch -> {
+                rows[0] += batch.size();
+                consumer.accept(batch);
+            });
+            return rows;
+        }, scanned -> scanned[0]);
+    }
+
+    private <T> T record(String operation, int userId, Supplier<T> call, ToIntFunction<T> rows) {
+        var event = new UserDaoCallEvent();
+        event.begin();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.backend = backend;
+                event.userId = userId;
+                event.rows = failed ? 0 : rows.applyAsInt(result);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static int rows(Optional<User> user) {
+        return user.isPresent() ? 1 : 0;
+    }
+}
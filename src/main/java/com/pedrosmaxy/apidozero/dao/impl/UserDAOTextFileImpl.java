@@ -1,156 +1,574 @@
 package com.pedrosmaxy.apidozero.dao.impl;
 
 import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
 import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.jfr.UserFileFlushEvent;
+import com.pedrosmaxy.apidozero.search.TrigramIndex;
+import com.pedrosmaxy.apidozero.util.Deadline;
+import com.pedrosmaxy.apidozero.util.ScalableBloomFilter;
 
-import java.io.*;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class UserDAOTextFileImpl implements UserDAO {
+/**
+ * Keeps users in a {@code id-name-email-version} text file. Reads run concurrently; writes are
+ * serialised by a lock and replace the file atomically (temp file + rename), so a reader never
+ * sees a half-written file and two writers never overwrite each other's changes. Waiting for
+ * the lock and scanning the file both give up once the current request {@link Deadline} passes.
+ * A Bloom filter over the stored emails lets a new email skip the uniqueness scan.
+ * <p>
+ * In write-behind mode the users are kept in memory instead, writes are acknowledged as soon
+ * as they are applied there and a background flusher rewrites the file shortly after.
+ */
+public class UserDAOTextFileImpl implements UserDAO, AutoCloseable {
 
-    private int idIncremental;
+    private static final int EMAIL_FILTER_CAPACITY = 1_024;
+    private static final double EMAIL_FILTER_FALSE_POSITIVES = 0.01;
+
+    private final AtomicInteger idIncremental = new AtomicInteger();
+    private final AtomicInteger userCount = new AtomicInteger();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final String filePath;
+    private final TrigramIndex searchIndex = new TrigramIndex();
+    // Guarded by the write lock. Emails that left the file stay in the filter until the next
+    // rebuild, which only costs a scan when such an email is tried again.
+    private final ScalableBloomFilter emailFilter = new ScalableBloomFilter(EMAIL_FILTER_CAPACITY, EMAIL_FILTER_FALSE_POSITIVES);
+    private int staleEmails;
+
+    // Write-behind mode only. The cache holds the users as last acknowledged and, like the
+    // ids changed since the last flush, is guarded by the write lock; flushLock keeps two
+    // flushes from renaming their files in the wrong order.
+    private final Duration maxFlushDelay;
+    private final int maxDirtyEntries;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private List<User> cache;
+    private Set<Integer> dirtyIds = new HashSet<>();
+    private boolean flushRequested;
+    private volatile int pendingEntries;
+    private volatile long oldestDirtyNanos;
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile long lastFlushLagMillis;
+    private volatile long maxFlushLagMillis;
 
     public UserDAOTextFileImpl(String filePath) {
+        this(filePath, null, 0);
+    }
+
+    /**
+     * Write-behind mode, or synchronous writes when {@code maxFlushDelay} is {@code null}. The
+     * file is rewritten once the oldest unwritten change is {@code maxFlushDelay} old or
+     * {@code maxDirtyEntries} users have changed, whichever comes first, and {@link #close()}
+     * writes whatever is left. A crash loses at most the changes of the last
+     * {@code maxFlushDelay} plus the time one write takes.
+     */
+    public UserDAOTextFileImpl(String filePath, Duration maxFlushDelay, int maxDirtyEntries) {
         if (filePath == null || filePath.isEmpty()) {
             throw new IllegalArgumentException("Caminho do arquivo não pode ser nulo ou vazio");
         }
+        if (maxFlushDelay != null && (maxFlushDelay.isNegative() || maxDirtyEntries <= 0)) {
+            throw new IllegalArgumentException("Atraso máximo e limite de alterações devem ser positivos");
+        }
         this.filePath = filePath;
-        this.idIncremental = getLastId();
+        this.maxFlushDelay = maxFlushDelay;
+        this.maxDirtyEntries = maxDirtyEntries;
+
+        List<User> users = UserTextFile.read(filePath);
+        for (User user : users) {
+            idIncremental.accumulateAndGet(user.getId(), Math::max);
+        }
+        this.searchIndex.putAll(users);
+        this.userCount.set(users.size());
+        rebuildEmailFilter(users);
+
+        if (maxFlushDelay != null) {
+            this.cache = users;
+            this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+                var thread = new Thread(runnable, "user-file-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // On close the remaining changes are written directly instead of waiting for timers.
+            this.flusher.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        } else {
+            this.flusher = null;
+        }
     }
 
     public UserDAOTextFileImpl() {
         this("./base.txt");
     }
 
-    private int getLastId() {
-        assert filePath != null;
-        File file = new File(filePath);
+    /**
+     * Writes a users file from the given batches without opening it as a store, e.g. to
+     * generate a dataset; the file is replaced atomically once every batch is written.
+     */
+    public static void writeFile(String filePath, Iterator<? extends Collection<User>> batches) {
+        UserTextFile.writeAtomically(filePath, batches);
+    }
 
-        if (!file.exists()) {
-            return 0;
+    @Override
+    public List<User> getAll() {
+        Deadline.current().lock(lock.readLock());
+        try {
+            if (cache == null) {
+                return UserTextFile.read(filePath);
+            }
+            List<User> users = new ArrayList<>(cache.size());
+            for (User user : cache) {
+                users.add(copy(user));
+            }
+            return users;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        try (Scanner input = new Scanner(file)) {
-            input.useDelimiter("-|\n");
+    /**
+     * Answered from the search index, which holds every stored user and is only changed under
+     * the write lock together with the file, without reading the file.
+     */
+    @Override
+    public List<User> find(UserQuery query) {
+        List<User> users;
+        Deadline.current().lock(lock.readLock());
+        try {
+            users = searchIndex.filter(query::matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+        users.sort(query.comparator());
+        return users;
+    }
 
-            int maxId = 0;
-            while (input.hasNext()) {
-                int id = input.nextInt();
-                input.next(); // nome
-                input.next(); // email
+    /** Answered from the search index, like {@link #find}. */
+    @Override
+    public Optional<User> findById(int id) {
+        Deadline.current().lock(lock.readLock());
+        try {
+            return searchIndex.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-                if (id > maxId) {
-                    maxId = id;
-                }
-            }
+    /**
+     * The stored users. In write-behind mode this is the cache itself, which is only changed
+     * under the write lock and whose users are replaced rather than modified, so a flush can
+     * write a copy of the list while requests go on.
+     */
+    private List<User> load() {
+        return cache != null ? cache : UserTextFile.read(filePath);
+    }
 
-            return maxId;
-        } catch (FileNotFoundException e) {
-            return 0;
+    private boolean isEmailUnique(List<User> users, String email, int excludeId) {
+        if (!emailFilter.mightContain(email)) {
+            return false;
         }
+        return users.stream()
+                .filter(user -> user.getId() != excludeId)
+                .anyMatch(user -> user.getEmail().equals(email));
     }
 
     @Override
-    public List<User> getAll() {
-        List<User> users = new ArrayList<>();
-        File file = new File(filePath);
+    public User create(User newUser) {
+        UserTextFile.requireWritable(newUser);
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            List<User> users = load();
+            if (isEmailUnique(users, newUser.getEmail(), -1)) {
+                throw new RuntimeException("Email já está em uso");
+            }
 
-        if (!file.exists()) {
-            return users;
+            newUser.setId(idIncremental.incrementAndGet());
+            newUser.setVersion(1);
+            users.add(copy(newUser));
+            saveAllUsers(users, newUser.getId());
+            searchIndex.put(newUser);
+            userCount.incrementAndGet();
+            emailFilter.add(newUser.getEmail());
+
+            return newUser;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        try (Scanner input = new Scanner(file)) {
-            input.useDelimiter("-|\n");
+    @Override
+    public Optional<User> change(User updateUser, int id, int expectedVersion) {
+        UserTextFile.requireWritable(updateUser);
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            List<User> users = load();
+            int index = indexOf(users, id);
+            if (index < 0) {
+                throw new RuntimeException("Usuário não existe");
+            }
+            int currentVersion = checkVersion(users.get(index), expectedVersion);
 
-            while (input.hasNext()) {
-                var user = new User();
-                user.setId(input.nextInt());
-                user.setName(input.next());
-                user.setEmail(input.next());
+            if (isEmailUnique(users, updateUser.getEmail(), id)) {
+                throw new RuntimeException("Email já está em uso por outro usuário");
+            }
 
-                users.add(user);
+            updateUser.setId(id);
+            updateUser.setVersion(currentVersion + 1);
+            User previous = users.set(index, copy(updateUser));
+            saveAllUsers(users, id);
+            searchIndex.put(updateUser);
+            if (!previous.getEmail().equals(updateUser.getEmail())) {
+                emailFilter.add(updateUser.getEmail());
+                emailReleased(users);
             }
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("Erro ao ler arquivo de usuários", e);
+            return Optional.of(updateUser);
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        return users;
+    @Override
+    public Optional<User> patch(int id, User changes, int expectedVersion) {
+        UserTextFile.requireWritable(changes);
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            List<User> users = load();
+            int index = indexOf(users, id);
+            if (index < 0) {
+                return Optional.empty();
+            }
+            User current = copy(users.get(index));
+            checkVersion(current, expectedVersion);
+
+            boolean emailChanged = changes.getEmail() != null && !changes.getEmail().equals(current.getEmail());
+            if (emailChanged) {
+                if (isEmailUnique(users, changes.getEmail(), id)) {
+                    throw new RuntimeException("Email já está em uso por outro usuário");
+                }
+                current.setEmail(changes.getEmail());
+            }
+            if (changes.getName() != null) {
+                current.setName(changes.getName());
+            }
+            current.setVersion(current.getVersion() + 1);
+            users.set(index, current);
+            saveAllUsers(users, id);
+            searchIndex.put(current);
+            if (emailChanged) {
+                emailFilter.add(current.getEmail());
+                emailReleased(users);
+            }
+            return Optional.of(copy(current));
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
-    public Optional<User> findById(int id) {
-        return getAll().stream()
-                .filter(user -> user.getId() == id)
-                .findFirst();
+    public void delete(int id, int expectedVersion) {
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            List<User> users = load();
+            int index = indexOf(users, id);
+            if (index < 0) {
+                throw new RuntimeException("Usuário não existe");
+            }
+            checkVersion(users.get(index), expectedVersion);
+
+            users.remove(index);
+            saveAllUsers(users, id);
+            searchIndex.remove(id);
+            userCount.decrementAndGet();
+            emailReleased(users);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    private boolean isEmailUnique(String email, int excludeId) {
-        return getAll().stream()
-                .filter(user -> user.getId() != excludeId)
-                .anyMatch(user -> user.getEmail().equals(email));
+    @Override
+    public void saveAll(List<User> users) {
+        for (User user : users) {
+            UserTextFile.requireWritable(user);
+        }
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            Map<Integer, User> byId = new LinkedHashMap<>();
+            for (User user : load()) {
+                byId.put(user.getId(), user);
+            }
+            for (User user : users) {
+                User previous = byId.get(user.getId());
+                if (user.getVersion() <= 0) {
+                    user.setVersion(previous != null ? previous.getVersion() + 1 : 1);
+                }
+                byId.put(user.getId(), copy(user));
+            }
+
+            Set<String> emails = new HashSet<>();
+            for (User user : byId.values()) {
+                if (!emails.add(user.getEmail())) {
+                    throw new RuntimeException("Email já está em uso: " + user.getEmail());
+                }
+            }
+
+            saveAllUsers(new ArrayList<>(byId.values()), users.stream().mapToInt(User::getId).toArray());
+            userCount.set(byId.size());
+            rebuildEmailFilter(byId.values());
+            for (User user : users) {
+                searchIndex.put(user);
+                idIncremental.accumulateAndGet(user.getId(), Math::max);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
-    public User create(User newUser) {
-        if (isEmailUnique(newUser.getEmail(), -1)) {
-            throw new RuntimeException("Email já está em uso");
+    public void replaceAll(List<User> users) {
+        List<User> replacement = new ArrayList<>(users.size());
+        Set<String> emails = new HashSet<>();
+        for (User user : users) {
+            UserTextFile.requireWritable(user);
+            if (!emails.add(user.getEmail())) {
+                throw new RuntimeException("Email já está em uso: " + user.getEmail());
+            }
+            User stored = copy(user);
+            stored.setVersion(Math.max(stored.getVersion(), 1));
+            replacement.add(stored);
         }
 
-        idIncremental++;
-        newUser.setId(idIncremental);
+        Deadline.current().lock(lock.writeLock());
+        try {
+            ensureOpen();
+            // Only write-behind mode tracks changed ids, so the old file is not read otherwise.
+            Set<Integer> changedIds = new HashSet<>();
+            if (cache != null) {
+                for (User user : cache) {
+                    changedIds.add(user.getId());
+                }
+                for (User user : replacement) {
+                    changedIds.add(user.getId());
+                }
+            }
 
-        List<User> users = getAll();
-        users.add(newUser);
-        saveAllUsers(users);
+            saveAllUsers(replacement, changedIds.stream().mapToInt(Integer::intValue).toArray());
+            for (User user : replacement) {
+                idIncremental.accumulateAndGet(user.getId(), Math::max);
+            }
+            searchIndex.replaceAll(replacement);
+            userCount.set(replacement.size());
+            rebuildEmailFilter(replacement);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        return newUser;
+    @Override
+    public List<User> search(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
 
+    /** Answered from counters updated alongside every write, without reading the file. */
     @Override
-    public Optional<User> change(User updateUser, int id) {
-        if (findById(id).isEmpty()) {
-            throw new RuntimeException("Usuário não existe");
+    public UserStats stats() {
+        return new UserStats(userCount.get(), idIncremental.get());
+    }
+
+    /**
+     * Write-behind changes made after {@link #close()} would never reach the file, so they fail
+     * before touching anything. Called with the write lock held, which close() takes too.
+     */
+    private void ensureOpen() {
+        if (flusher != null && flusher.isShutdown()) {
+            throw new RuntimeException("Armazenamento de usuários já foi fechado");
         }
+    }
 
-        if (isEmailUnique(updateUser.getEmail(), id)) {
-            throw new RuntimeException("Email já está em uso por outro usuário");
+    private static int checkVersion(User current, int expectedVersion) {
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            throw new VersionConflictException(current.getId(), expectedVersion, current.getVersion());
         }
+        return current.getVersion();
+    }
 
-        List<User> users = getAll();
+    private static int indexOf(List<User> users, int id) {
         for (int i = 0; i < users.size(); i++) {
             if (users.get(i).getId() == id) {
-                updateUser.setId(id);
-                users.set(i, updateUser);
-                break;
+                return i;
             }
         }
+        return -1;
+    }
 
-        saveAllUsers(users);
-        return Optional.of(updateUser);
+    /** Rebuilds the filter once more stored emails are gone than are left. */
+    private void emailReleased(List<User> users) {
+        if (++staleEmails > users.size()) {
+            rebuildEmailFilter(users);
+        }
     }
 
-    @Override
-    public void delete(int id) {
-        if (findById(id).isEmpty()) {
-            throw new RuntimeException("Usuário não existe");
+    private void rebuildEmailFilter(Collection<User> users) {
+        emailFilter.clear();
+        for (User user : users) {
+            emailFilter.add(user.getEmail());
         }
+        staleEmails = 0;
+    }
 
-        List<User> users = getAll();
-        users.removeIf(user -> user.getId() == id);
-        saveAllUsers(users);
+    private static User copy(User user) {
+        var copy = new User(user.getName(), user.getEmail());
+        copy.setId(user.getId());
+        copy.setVersion(user.getVersion());
+        return copy;
     }
 
-    private void saveAllUsers(List<User> users) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (User user : users) {
-                writer.write(user.getId() + "-" + user.getName() + "-" + user.getEmail() + "\n");
+    /**
+     * Writes the users to the file, or in write-behind mode keeps them as the new contents and
+     * marks {@code changedIds} for the flusher. Called with the write lock held.
+     */
+    private void saveAllUsers(List<User> users, int... changedIds) {
+        if (cache == null) {
+            UserTextFile.writeAtomically(filePath, users);
+            return;
+        }
+        cache = users;
+        if (changedIds.length == 0) {
+            return;
+        }
+        if (dirtyIds.isEmpty()) {
+            oldestDirtyNanos = System.nanoTime();
+            flusher.schedule(this::scheduledFlush, maxFlushDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        for (int id : changedIds) {
+            dirtyIds.add(id);
+        }
+        pendingEntries = dirtyIds.size();
+        if (pendingEntries >= maxDirtyEntries && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::scheduledFlush);
+        }
+    }
+
+    /**
+     * Write-behind counters: flushes done and failed, users changed but not yet written and how
+     * long the oldest of them has waited, and the lag (age of the oldest change written) of the
+     * last and of the slowest flush.
+     */
+    public record FlushStats(long flushes, long failedFlushes, int pendingEntries, long pendingLagMillis,
+                             long lastFlushLagMillis, long maxFlushLagMillis) {
+    }
+
+    public FlushStats flushStats() {
+        int pending = pendingEntries;
+        long pendingLag = pending == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestDirtyNanos);
+        return new FlushStats(flushes.get(), failedFlushes.get(), pending, pendingLag,
+                lastFlushLagMillis, maxFlushLagMillis);
+    }
+
+    /**
+     * Writes every change acknowledged so far to the file and returns once it is there. Does
+     * nothing when writes are synchronous. A failed write leaves the changes pending and the
+     * flusher tries again after {@code maxFlushDelay}.
+     */
+    public void flush() {
+        if (cache == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<User> snapshot;
+            Set<Integer> flushing;
+            long oldest;
+            lock.writeLock().lock();
+            try {
+                if (dirtyIds.isEmpty()) {
+                    return;
+                }
+                snapshot = new ArrayList<>(cache);
+                flushing = dirtyIds;
+                oldest = oldestDirtyNanos;
+                dirtyIds = new HashSet<>();
+                pendingEntries = 0;
+                flushRequested = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            var event = new UserFileFlushEvent();
+            event.begin();
+            event.entries = flushing.size();
+            try {
+                UserTextFile.writeAtomically(filePath, snapshot);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    // The unwritten changes are older than any made since the snapshot, and
+                    // are retried once they are a full delay old again.
+                    oldestDirtyNanos = oldest;
+                    dirtyIds.addAll(flushing);
+                    pendingEntries = dirtyIds.size();
+                    if (!flusher.isShutdown()) {
+                        flusher.schedule(this::scheduledFlush, maxFlushDelay.toNanos(), TimeUnit.NANOSECONDS);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                failedFlushes.incrementAndGet();
+                event.failed = true;
+                throw e;
+            } finally {
+                event.lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+                event.commit();
+            }
+
+            lastFlushLagMillis = event.lag;
+            maxFlushLagMillis = Math.max(maxFlushLagMillis, event.lag);
+            flushes.incrementAndGet();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao gravar usuários em segundo plano: " + e.getMessage());
+        }
+    }
+
+    /** Stops the background flusher and writes any changes still pending; later writes fail. */
+    @Override
+    public void close() {
+        if (flusher != null) {
+            lock.writeLock().lock();
+            try {
+                flusher.shutdown();
+            } finally {
+                lock.writeLock().unlock();
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Erro ao salvar usuários no arquivo", e);
+            flush();
         }
     }
-}
\ No newline at end of file
+}
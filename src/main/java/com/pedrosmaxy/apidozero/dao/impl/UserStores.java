@@ -0,0 +1,73 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.persistence.FsyncPolicy;
+import com.pedrosmaxy.apidozero.persistence.UserStorePersistence;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Opens a storage backend from a short description, as used by {@code apidozero.storage} and
+ * the {@code migrate} command:
+ * <ul>
+ *   <li>{@code sqlite:<file>} or a full {@code jdbc:sqlite:} url</li>
+ *   <li>{@code text:<file>}, writing the file on every change</li>
+ *   <li>{@code text-write-behind:<file>}, flushing at most {@code apidozero.storage.flushDelay}
+ *       milliseconds (default 200) or {@code apidozero.storage.maxDirty} changed users
+ *       (default 1000) later</li>
+ *   <li>{@code memory}, or {@code memory:<file>} to snapshot to a text file every
+ *       {@code apidozero.storage.snapshotInterval} seconds (default 60) and on close</li>
+ *   <li>{@code wal:<directory>}, the in-memory store with a write-ahead log forced as
+ *       {@code apidozero.storage.fsync} says (default {@code GROUP}) and a checkpoint every
+ *       snapshot interval</li>
+ *   <li>{@code offheap}</li>
+ * </ul>
+ */
+public final class UserStores {
+
+    private static final long DEFAULT_FLUSH_DELAY_MILLIS = 200;
+    private static final int DEFAULT_MAX_DIRTY = 1_000;
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_SECONDS = 60;
+
+    private UserStores() {
+    }
+
+    public static UserDAO open(String store) {
+        if (store.startsWith("jdbc:sqlite:")) {
+            return new UserDAOSqliteImpl(store);
+        }
+        if (store.startsWith("sqlite:")) {
+            return new UserDAOSqliteImpl("jdbc:" + store);
+        }
+        if (store.startsWith("text:")) {
+            return new UserDAOTextFileImpl(store.substring("text:".length()));
+        }
+        if (store.startsWith("text-write-behind:")) {
+            return new UserDAOTextFileImpl(store.substring("text-write-behind:".length()),
+                    Duration.ofMillis(Long.getLong("apidozero.storage.flushDelay", DEFAULT_FLUSH_DELAY_MILLIS)),
+                    Integer.getInteger("apidozero.storage.maxDirty", DEFAULT_MAX_DIRTY));
+        }
+        if ("memory".equals(store)) {
+            return new UserDAOMemoryImpl();
+        }
+        if (store.startsWith("memory:")) {
+            return UserDAOMemoryImpl.withSnapshots(store.substring("memory:".length()), snapshotInterval());
+        }
+        if (store.startsWith("wal:")) {
+            var policy = FsyncPolicy.valueOf(
+                    System.getProperty("apidozero.storage.fsync", FsyncPolicy.GROUP.name()).toUpperCase(Locale.ROOT));
+            var persistence = new UserStorePersistence(Path.of(store.substring("wal:".length())), policy);
+            return UserDAOMemoryImpl.withPersistence(persistence, snapshotInterval());
+        }
+        if ("offheap".equals(store)) {
+            return new UserDAOOffHeapImpl();
+        }
+        throw new IllegalArgumentException("Unknown store: " + store);
+    }
+
+    private static Duration snapshotInterval() {
+        return Duration.ofSeconds(Long.getLong("apidozero.storage.snapshotInterval", DEFAULT_SNAPSHOT_INTERVAL_SECONDS));
+    }
+}
@@ -0,0 +1,261 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.util.Deadline;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Reads and writes the {@code id-name-email-version} line format shared by the file-based
+ * backends. The version is optional when reading; lines written before users were versioned
+ * load as version 1.
+ * <p>
+ * Reading memory-maps the file, splits it into chunks at line boundaries and parses the chunks
+ * in parallel on the common fork-join pool, so loading a large file scales with the cores.
+ */
+final class UserTextFile {
+
+    static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_SIZE = 4_096;
+    private static final int DEADLINE_CHECK_LINES = 4_096;
+
+    private UserTextFile() {
+    }
+
+    static List<User> read(String filePath) {
+        return read(Path.of(filePath), DEFAULT_CHUNK_SIZE);
+    }
+
+    static List<User> read(Path path, int chunkSize) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+
+            // The chunks are parsed on pool threads, so the caller's deadline is passed along.
+            Deadline deadline = Deadline.current();
+            long[] bounds = chunkBounds(channel, size, chunkSize);
+            List<List<User>> parts = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], deadline))
+                    .toList();
+
+            List<User> users = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+            parts.forEach(users::addAll);
+            return users;
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler arquivo de usuários", e);
+        }
+    }
+
+    /**
+     * Rejects values the line format cannot hold: a {@code -} in the name would move the
+     * boundary with the email, and a line break in either field would split the line.
+     */
+    static void requireWritable(User user) {
+        String name = user.getName();
+        if (name != null && (name.indexOf('-') >= 0 || hasLineBreak(name))) {
+            throw new RuntimeException("Nome não pode conter '-' nem quebras de linha: " + name);
+        }
+        if (user.getEmail() != null && hasLineBreak(user.getEmail())) {
+            throw new RuntimeException("Email não pode conter quebras de linha");
+        }
+    }
+
+    private static boolean hasLineBreak(String value) {
+        return value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+    }
+
+    private static String line(User user) {
+        requireWritable(user);
+        return user.getId() + "-" + user.getName() + "-" + user.getEmail() + "-" + Math.max(user.getVersion(), 1) + "\n";
+    }
+
+    static void writeAtomically(String filePath, Collection<User> users) {
+        writeAtomically(filePath, List.of(users).iterator());
+    }
+
+    /**
+     * Writes the users to a temporary file next to {@code filePath}, forces it to disk and
+     * renames it over the original, so readers only ever see the old or the new contents.
+     * Batches are written as they arrive, so they need not all be in memory at once.
+     */
+    static void writeAtomically(String filePath, Iterator<? extends Collection<User>> batches) {
+        Path target = Path.of(filePath).toAbsolutePath();
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (var output = new FileOutputStream(temp.toFile());
+                 var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                while (batches.hasNext()) {
+                    for (User user : batches.next()) {
+                        writer.write(line(user));
+                    }
+                }
+                writer.flush();
+                output.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // The original file is untouched; a stray temp file is harmless.
+                }
+            }
+            throw new RuntimeException("Erro ao salvar usuários no arquivo", e);
+        }
+    }
+
+    /**
+     * Start offsets of each chunk plus the file size. Every chunk except the last ends right
+     * after a newline, so no line is split between two chunks.
+     */
+    private static long[] chunkBounds(FileChannel channel, long size, int chunkSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        var scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+
+        long position = chunkSize;
+        while (position < size) {
+            long boundary = nextLineStart(channel, position, size, scan);
+            if (boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = boundary + chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer scan) throws IOException {
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static List<User> parseChunk(FileChannel channel, long start, long end, Deadline deadline) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao ler arquivo de usuários", e);
+        }
+
+        List<User> users = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, (end - start) / 32 + 1));
+        byte[] scratch = new byte[256];
+        int limit = buffer.limit();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (contentEnd > lineStart) {
+                int firstDash = indexOf(buffer, lineStart, contentEnd);
+                int secondDash = firstDash < 0 ? -1 : indexOf(buffer, firstDash + 1, contentEnd);
+                if (secondDash < 0) {
+                    throw new RuntimeException("Linha inválida no arquivo de usuários na posição " + (start + lineStart));
+                }
+
+                var user = new User();
+                user.setId(parseId(buffer, lineStart, firstDash, start));
+                int versionDash = versionDash(buffer, secondDash + 1, contentEnd);
+                int emailEnd = versionDash < 0 ? contentEnd : versionDash;
+                user.setVersion(versionDash < 0 ? 1 : parseId(buffer, versionDash + 1, contentEnd, start));
+                scratch = ensureCapacity(scratch, contentEnd - lineStart);
+                user.setName(decode(buffer, firstDash + 1, secondDash, scratch));
+                user.setEmail(decode(buffer, secondDash + 1, emailEnd, scratch));
+                users.add(user);
+                if (users.size() % DEADLINE_CHECK_LINES == 0) {
+                    deadline.check();
+                }
+            }
+
+            lineStart = lineEnd + 1;
+        }
+        return users;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Position of the dash before a trailing all-digit version field, or {@code -1}. An email
+     * never ends in such a field, so dashes inside the email are left alone.
+     */
+    private static int versionDash(ByteBuffer buffer, int from, int to) {
+        int i = to - 1;
+        while (i >= from && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+            i--;
+        }
+        return i >= from && i < to - 1 && buffer.get(i) == '-' ? i : -1;
+    }
+
+    private static int parseId(ByteBuffer buffer, int from, int to, long chunkStart) {
+        if (from == to) {
+            throw new RuntimeException("Id ausente no arquivo de usuários na posição " + (chunkStart + from));
+        }
+        long id = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || (id = id * 10 + digit) > Integer.MAX_VALUE) {
+                throw new RuntimeException("Id inválido no arquivo de usuários na posição " + (chunkStart + from));
+            }
+        }
+        return (int) id;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        int length = to - from;
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ensureCapacity(byte[] scratch, int length) {
+        return scratch.length >= length ? scratch : new byte[Math.max(length, scratch.length * 2)];
+    }
+}
@@ -6,6 +6,7 @@ public class User {
     private Integer id;
     private String name;
     private String email;
+    private int version;
 
     public User(String name, String email) {
         this.id = null;
@@ -40,6 +41,18 @@ public class User {
         this.email = email;
     }
 
+    /**
+     * Incremented by the store on every change; 0 means the version is not known, e.g. for a
+     * user parsed from a request body.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,26 @@
+package com.pedrosmaxy.apidozero.events;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+/**
+ * A single mutation observed on a {@code UserDAO}. {@code user} is a detached copy of the
+ * state after the change, or {@code null} for deletions.
+ */
+public record UserChangeEvent(long sequence, Type type, int userId, User user, long timestamp) {
+
+    public enum Type {
+        CREATED("created"),
+        UPDATED("updated"),
+        DELETED("deleted");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String eventName() {
+            return eventName;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.pedrosmaxy.apidozero.events;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process log of user mutations. Keeps the last {@code historySize} events so that
+ * subscribers can resume from a sequence number, and fans new events out to every
+ * subscriber's bounded buffer. A subscriber whose buffer is full is dropped instead of
+ * slowing down publishers; it can reconnect and resume from its last seen sequence.
+ */
+public class UserChangeFeed {
+
+    public static final int DEFAULT_HISTORY_SIZE = 10_000;
+    public static final int DEFAULT_SUBSCRIBER_BUFFER_SIZE = 1_024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<UserChangeSubscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<UserChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final UserChangeEvent[] history;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final int subscriberBufferSize;
+    private long sequence;
+
+    public UserChangeFeed() {
+        this(DEFAULT_HISTORY_SIZE, DEFAULT_SUBSCRIBER_BUFFER_SIZE);
+    }
+
+    public UserChangeFeed(int historySize, int subscriberBufferSize) {
+        if (historySize <= 0 || subscriberBufferSize <= 0) {
+            throw new IllegalArgumentException("History and buffer sizes must be positive");
+        }
+        this.history = new UserChangeEvent[historySize];
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    public long publish(UserChangeEvent.Type type, int userId, User user) {
+        User snapshot = null;
+        if (user != null) {
+            snapshot = new User(user.getName(), user.getEmail());
+            snapshot.setId(user.getId());
+            snapshot.setVersion(user.getVersion());
+        }
+
+        lock.lock();
+        try {
+            var event = new UserChangeEvent(++sequence, type, userId, snapshot, System.currentTimeMillis());
+            history[(int) (event.sequence() % history.length)] = event;
+            for (var listener : listeners) {
+                listener.accept(event);
+            }
+            for (var subscriber : subscribers) {
+                if (!subscriber.offer(event)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+            return event.sequence();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a subscriber that first receives every retained event after {@code sinceSequence}
+     * and then live events. Pass a negative value to only receive live events. The subscription
+     * is marked reset when events after {@code sinceSequence} are no longer retained, or when
+     * {@code sinceSequence} is ahead of this feed, i.e. it came from before a restart.
+     */
+    public UserChangeSubscription subscribe(long sinceSequence) {
+        lock.lock();
+        try {
+            var subscription = new UserChangeSubscription(this, subscriberBufferSize);
+            if (sinceSequence > sequence) {
+                subscription.markReset();
+            }
+            if (sinceSequence >= 0 && sinceSequence < sequence) {
+                long oldestRetained = Math.max(1, sequence - history.length + 1);
+                if (sinceSequence + 1 < oldestRetained) {
+                    subscription.markReset();
+                }
+                for (long seq = Math.max(sinceSequence + 1, oldestRetained); seq <= sequence; seq++) {
+                    if (!subscription.offer(history[(int) (seq % history.length)])) {
+                        return subscription;
+                    }
+                }
+            }
+            subscribers.add(subscription);
+            return subscription;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a callback that runs for every event inside {@link #publish}, before the
+     * publisher returns. It must be quick and must not publish itself.
+     */
+    public void addListener(Consumer<UserChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    void unsubscribe(UserChangeSubscription subscription) {
+        subscribers.remove(subscription);
+    }
+
+    /**
+     * Identifies this feed. Sequence numbers restart with every feed, so a sequence seen on a
+     * feed with another epoch, e.g. before a restart, says nothing about this one.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    public long currentSequence() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.pedrosmaxy.apidozero.events;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class UserChangeSubscription implements AutoCloseable {
+
+    private final UserChangeFeed feed;
+    private final BlockingQueue<UserChangeEvent> buffer;
+    private volatile boolean dropped;
+    private volatile boolean reset;
+
+    UserChangeSubscription(UserChangeFeed feed, int bufferSize) {
+        this.feed = feed;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    boolean offer(UserChangeEvent event) {
+        if (dropped) {
+            return false;
+        }
+        if (!buffer.offer(event)) {
+            dropped = true;
+            return false;
+        }
+        return true;
+    }
+
+    void markReset() {
+        reset = true;
+    }
+
+    /**
+     * Waits up to {@code timeout} for the next event. Returns {@code null} on timeout or once
+     * the subscriber has been dropped and its buffered events are drained.
+     */
+    public UserChangeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        var event = buffer.poll();
+        if (event != null || dropped) {
+            return event;
+        }
+        return buffer.poll(timeout, unit);
+    }
+
+    /** True when the requested resume point was older than the retained history. */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /** True when the subscriber fell behind and no longer receives events. */
+    public boolean isDropped() {
+        return dropped && buffer.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        feed.unsubscribe(this);
+    }
+}
@@ -0,0 +1,131 @@
+package com.pedrosmaxy.apidozero.generator;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOSqliteImpl;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOTextFileImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code java -jar apidozero.jar generate --to <store> --count N [options]}. Writes users 1 to
+ * N from a {@link UserGenerator} straight into the native format of an empty store:
+ * {@code text:<file>} or {@code sqlite:<file>} (or a full {@code jdbc:sqlite:} url).
+ */
+public final class GenerateCommand {
+
+    static final String USAGE = """
+            Usage: generate --to <store> --count N [--seed N] [--batch-size N] [--threads N]
+              stores: sqlite:<file> | jdbc:sqlite:<url> | text:<file>""";
+
+    private static final long DEFAULT_SEED = 42;
+    private static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private GenerateCommand() {
+    }
+
+    /** Runs the command and returns the process exit code. */
+    public static int run(String[] args) {
+        String to = null;
+        int count = -1;
+        long seed = DEFAULT_SEED;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--to" -> to = args[++i];
+                    case "--count" -> count = Integer.parseInt(args[++i]);
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (to == null || count < 0) {
+                throw new IllegalArgumentException("Both --to and --count are required");
+            }
+            if (!to.startsWith("text:") && sqliteUrl(to) == null) {
+                throw new IllegalArgumentException("Unknown store: " + to);
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        Main.log("Generating " + count + " users into " + to + " (seed " + seed + ", " + threads + " threads)");
+        long started = System.nanoTime();
+        try (UserGenerator.Batches batches = new UserGenerator(seed).batches(count, batchSize, threads)) {
+            generate(to, withProgress(batches, started));
+        } catch (RuntimeException e) {
+            Main.log("Generation failed: " + e.getMessage());
+            return 1;
+        }
+
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        Main.log(String.format("Generated %d users in %.1f s (%.0f users/s)",
+                count, elapsedMillis / 1000.0, count * 1000.0 / elapsedMillis));
+        return 0;
+    }
+
+    static void generate(String store, Iterator<List<User>> batches) {
+        if (store.startsWith("text:")) {
+            String file = store.substring("text:".length());
+            if (hasContent(Path.of(file))) {
+                throw new RuntimeException("Target file " + file + " already has users");
+            }
+            UserDAOTextFileImpl.writeFile(file, batches);
+        } else {
+            new UserDAOSqliteImpl(sqliteUrl(store)).bulkLoad(batches);
+        }
+    }
+
+    private static String sqliteUrl(String store) {
+        if (store.startsWith("jdbc:sqlite:")) {
+            return store;
+        }
+        return store.startsWith("sqlite:") ? "jdbc:" + store : null;
+    }
+
+    private static boolean hasContent(Path file) {
+        try {
+            return Files.exists(file) && Files.size(file) > 0;
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading " + file, e);
+        }
+    }
+
+    private static Iterator<List<User>> withProgress(Iterator<List<User>> batches, long started) {
+        return new Iterator<>() {
+            private long generated;
+            private long lastReport = started;
+
+            @Override
+            public boolean hasNext() {
+                return batches.hasNext();
+            }
+
+            @Override
+            public List<User> next() {
+                List<User> batch = batches.next();
+                generated += batch.size();
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - started);
+                    Main.log(String.format("Generated %d users (%.0f users/s)",
+                            generated, generated * 1000.0 / Math.max(1, elapsedMillis)));
+                }
+                return batch;
+            }
+        };
+    }
+}
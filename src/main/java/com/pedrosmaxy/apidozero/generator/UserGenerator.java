@@ -0,0 +1,196 @@
+package com.pedrosmaxy.apidozero.generator;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synthetic users for benchmarks and capacity tests. Every field of user {@code id} is derived
+ * from the seed and the id alone, so any range can be generated on any thread and the same seed
+ * always gives the same dataset. Names combine a first name, sometimes a middle name and one to
+ * three surnames, from a few characters up to about fifty; emails end with the id, which keeps
+ * them unique.
+ */
+public final class UserGenerator {
+
+    private static final String[] FIRST_NAMES = {
+            "Ana", "Bia", "Caio", "Davi", "Enzo", "Eva", "Gael", "Igor", "Ian", "Léo", "Lia", "Luz",
+            "Noah", "Rui", "Théo", "Yuri", "Alice", "Bruno", "Carla", "Diego", "Elisa", "Fábio",
+            "Helena", "Heitor", "Isabel", "Júlia", "Lucas", "Laura", "Marcos", "Maria", "Mateus",
+            "Paulo", "Pedro", "Rafael", "Sofia", "Tiago", "Vitória", "Antônio", "Beatriz", "Cecília",
+            "Eduardo", "Fernanda", "Gabriela", "Gustavo", "Henrique", "João", "Larissa", "Leonardo",
+            "Lorenzo", "Manuela", "Mariana", "Patrícia", "Rodrigo", "Valentina", "Alessandra",
+            "Bernardo", "Conceição", "Guilherme", "Maximiliano", "Francisco", "Sebastião", "Emanuelly"
+    };
+    private static final String[] SURNAMES = {
+            "Sá", "Luz", "Cruz", "Dias", "Lima", "Melo", "Reis", "Rosa", "Alves", "Braga", "Costa",
+            "Gomes", "Lopes", "Moura", "Nunes", "Pinto", "Ramos", "Rocha", "Silva", "Souza", "Vieira",
+            "Barros", "Cardoso", "Castro", "Correia", "Freitas", "Martins", "Mendes", "Monteiro",
+            "Moreira", "Pereira", "Ribeiro", "Santos", "Teixeira", "Almeida", "Andrade", "Araújo",
+            "Carvalho", "Fernandes", "Ferreira", "Oliveira", "Rodrigues", "Nascimento", "Albuquerque",
+            "Cavalcanti", "Vasconcelos", "Bittencourt", "Figueiredo", "Guimarães", "Magalhães"
+    };
+    private static final String[] PARTICLES = {"da", "de", "do", "dos", "das"};
+    private static final String[] DOMAINS = {
+            "gmail.com", "hotmail.com", "outlook.com", "yahoo.com.br", "uol.com.br", "bol.com.br",
+            "icloud.com", "terra.com.br", "example.com", "empresa.com.br"
+    };
+    // Cumulative weights out of 100, roughly how common each provider is.
+    private static final int[] DOMAIN_WEIGHTS = {45, 61, 71, 78, 83, 87, 91, 94, 97, 100};
+
+    private static final String[] FIRST_NAMES_ASCII = ascii(FIRST_NAMES);
+    private static final String[] SURNAMES_ASCII = ascii(SURNAMES);
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+
+    public UserGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** The user with this id, at version 1. */
+    public User user(int id) {
+        var random = new SplittableRandom(seed * GOLDEN_GAMMA + id);
+        int first = random.nextInt(FIRST_NAMES.length);
+        int middle = random.nextInt(4) == 0 ? random.nextInt(FIRST_NAMES.length) : -1;
+        int roll = random.nextInt(100);
+        int surnameCount = roll < 45 ? 1 : roll < 85 ? 2 : 3;
+
+        var name = new StringBuilder(48).append(FIRST_NAMES[first]);
+        if (middle >= 0) {
+            name.append(' ').append(FIRST_NAMES[middle]);
+        }
+        int last = -1;
+        for (int i = 0; i < surnameCount; i++) {
+            if (random.nextInt(5) == 0) {
+                name.append(' ').append(PARTICLES[random.nextInt(PARTICLES.length)]);
+            }
+            last = random.nextInt(SURNAMES.length);
+            name.append(' ').append(SURNAMES[last]);
+        }
+
+        String separator = switch (random.nextInt(4)) {
+            case 0 -> ".";
+            case 1 -> "_";
+            default -> "";
+        };
+        String local = random.nextInt(5) == 0
+                ? FIRST_NAMES_ASCII[first].charAt(0) + separator + SURNAMES_ASCII[last]
+                : FIRST_NAMES_ASCII[first] + separator + SURNAMES_ASCII[last];
+
+        var user = new User();
+        user.setId(id);
+        user.setName(name.toString());
+        user.setEmail(local + id + "@" + domain(random.nextInt(100)));
+        user.setVersion(1);
+        return user;
+    }
+
+    /** Users {@code firstId} to {@code firstId + count - 1}. */
+    public List<User> users(int firstId, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(firstId + i));
+        }
+        return users;
+    }
+
+    /**
+     * Users 1 to {@code count} in id order, {@code batchSize} at a time, generated ahead on
+     * {@code threads} threads. Close the batches to stop the threads early.
+     */
+    public Batches batches(int count, int batchSize, int threads) {
+        if (count < 0 || batchSize <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Count cannot be negative; batch size and threads must be positive");
+        }
+        return new Batches(count, batchSize, threads);
+    }
+
+    public final class Batches implements Iterator<List<User>>, AutoCloseable {
+
+        private final ExecutorService pool;
+        private final ArrayDeque<Future<List<User>>> pending = new ArrayDeque<>();
+        private final int count;
+        private final int batchSize;
+        private final int lookAhead;
+        private int nextId = 1;
+
+        private Batches(int count, int batchSize, int threads) {
+            this.count = count;
+            this.batchSize = batchSize;
+            this.lookAhead = threads * 2;
+            this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+                var thread = new Thread(runnable, "user-generator");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fill();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public List<User> next() {
+            Future<List<User>> batch = pending.poll();
+            if (batch == null) {
+                throw new NoSuchElementException();
+            }
+            fill();
+            try {
+                return batch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while generating users", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error generating users", e.getCause());
+            }
+        }
+
+        private void fill() {
+            while (pending.size() < lookAhead && nextId <= count) {
+                int firstId = nextId;
+                int size = Math.min(batchSize, count - firstId + 1);
+                pending.add(pool.submit(() -> users(firstId, size)));
+                nextId += size;
+            }
+            if (nextId > count) {
+                pool.shutdown();
+            }
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String domain(int roll) {
+        int i = 0;
+        while (roll >= DOMAIN_WEIGHTS[i]) {
+            i++;
+        }
+        return DOMAINS[i];
+    }
+
+    /** Lower-case names without accents, for email addresses. */
+    private static String[] ascii(String[] names) {
+        return Arrays.stream(names)
+                .map(name -> Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT))
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,39 @@
+package com.pedrosmaxy.apidozero.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One HTTP request handled by {@code UserController}, from routing until the response was
+ * written. The route is the path template (e.g. {@code /api/user/{id}}) so samples can be
+ * grouped by endpoint; {@code userId} is 0 for routes without one.
+ */
+@Name("com.pedrosmaxy.apidozero.HttpRequest")
+@Label("HTTP Request")
+@Category({"API do Zero", "HTTP"})
+@Description("A request handled by the user endpoints")
+@StackTrace(false)
+@Threshold("0 ms")
+public class HttpRequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Route")
+    public String route;
+
+    @Label("User Id")
+    public int userId;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long bytes;
+}
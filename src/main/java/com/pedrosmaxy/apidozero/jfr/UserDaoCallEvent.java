@@ -0,0 +1,36 @@
+package com.pedrosmaxy.apidozero.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One call into a {@code UserDAO} backend. {@code rows} is the number of users returned or
+ * written; {@code failed} is set when the call threw.
+ */
+@Name("com.pedrosmaxy.apidozero.UserDaoCall")
+@Label("User DAO Call")
+@Category({"API do Zero", "Storage"})
+@Description("A call into a user storage backend")
+@StackTrace(false)
+@Threshold("0 ms")
+public class UserDaoCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Backend")
+    public String backend;
+
+    @Label("User Id")
+    public int userId;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Failed")
+    public boolean failed;
+}
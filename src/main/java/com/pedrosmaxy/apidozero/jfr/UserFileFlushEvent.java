@@ -0,0 +1,32 @@
+package com.pedrosmaxy.apidozero.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One background write of the users file in write-behind mode. {@code lag} is how long the
+ * oldest change it wrote had been acknowledged without being on disk.
+ */
+@Name("com.pedrosmaxy.apidozero.UserFileFlush")
+@Label("User File Flush")
+@Category({"API do Zero", "Storage"})
+@Description("A write-behind flush of the users text file")
+@StackTrace(false)
+@Threshold("0 ms")
+public class UserFileFlushEvent extends jdk.jfr.Event {
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Lag")
+    @Timespan(Timespan.MILLISECONDS)
+    public long lag;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,99 @@
+package com.pedrosmaxy.apidozero.migration;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.impl.UserStores;
+
+import java.nio.file.Path;
+
+/**
+ * {@code java -jar apidozero.jar migrate --from <store> --to <store> [options]}. Stores are
+ * described as for {@link UserStores#open}, usually {@code sqlite:<file>} (or a full
+ * {@code jdbc:sqlite:} url), {@code text:<file>} or {@code wal:<directory>} for the durable
+ * in-memory store.
+ */
+public final class MigrationCommand {
+
+    static final String USAGE = """
+            Usage: migrate --from <store> --to <store> [--batch-size N] [--writers N] [--checkpoint FILE] [--no-verify]
+              stores: sqlite:<file> | jdbc:sqlite:<url> | text:<file> | wal:<directory>""";
+
+    private static final int DEFAULT_BATCH_SIZE = 5_000;
+    private static final int DEFAULT_WRITERS = 4;
+
+    private MigrationCommand() {
+    }
+
+    /** Runs the command and returns the process exit code. */
+    public static int run(String[] args) {
+        String from = null;
+        String to = null;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int writers = DEFAULT_WRITERS;
+        Path checkpoint = null;
+        boolean verify = true;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--from" -> from = args[++i];
+                    case "--to" -> to = args[++i];
+                    case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                    case "--writers" -> writers = Integer.parseInt(args[++i]);
+                    case "--checkpoint" -> checkpoint = Path.of(args[++i]);
+                    case "--no-verify" -> verify = false;
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Both --from and --to are required");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        UserDAO source = open(from);
+        UserDAO target = open(to);
+        try {
+            Main.log("Migrating users from " + from + " to " + to +
+                    " (batch size " + batchSize + ", " + writers + " writers)");
+            var migration = new UserMigration(source, target, batchSize, writers, checkpoint);
+            UserMigration.Result result = migration.run();
+            Main.log(String.format("Migrated %d users in %.1f s (%.0f users/s)",
+                    result.copied(), result.elapsedMillis() / 1000.0, result.usersPerSecond()));
+
+            if (verify) {
+                UserMigration.Verification verification = migration.verify();
+                if (!verification.matches()) {
+                    Main.log("Verification failed: source " + verification.source() + ", target " + verification.target());
+                    return 1;
+                }
+                Main.log("Verified " + verification.target().count() + " users (crc32 " +
+                        Long.toHexString(verification.target().crc()) + ")");
+            }
+            return 0;
+        } catch (RuntimeException e) {
+            Main.log("Migration failed: " + e.getMessage() + " - run again with the same --checkpoint to resume");
+            return 1;
+        } finally {
+            close(source);
+            close(target);
+        }
+    }
+
+    static UserDAO open(String store) {
+        return UserStores.open(store);
+    }
+
+    private static void close(UserDAO userDAO) {
+        if (userDAO instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                Main.log("Error closing " + userDAO.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.pedrosmaxy.apidozero.migration;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Copies every user from one {@link UserDAO} to another in id order. The source is scanned in
+ * batches, each batch is written to the target with {@link UserDAO#saveAll} by one of
+ * {@code writers} threads, and the highest id below which every batch has been written is kept
+ * in a checkpoint file so an interrupted copy resumes there. Re-writing a batch is harmless
+ * because {@code saveAll} is an upsert.
+ */
+public class UserMigration {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final UserDAO source;
+    private final UserDAO target;
+    private final int batchSize;
+    private final int writers;
+    private final Path checkpointFile;
+
+    private final ReentrantLock progressLock = new ReentrantLock();
+    private final TreeMap<Long, Integer> finishedBatches = new TreeMap<>();
+    private long nextBatchToCheckpoint;
+    private int checkpointId;
+
+    public UserMigration(UserDAO source, UserDAO target, int batchSize, int writers, Path checkpointFile) {
+        if (batchSize <= 0 || writers <= 0) {
+            throw new IllegalArgumentException("Batch size and writers must be positive");
+        }
+        this.source = source;
+        this.target = target;
+        this.batchSize = batchSize;
+        this.writers = writers;
+        this.checkpointFile = checkpointFile;
+    }
+
+    public record Result(long copied, long elapsedMillis, int resumedAfterId) {
+
+        public double usersPerSecond() {
+            return elapsedMillis > 0 ? copied * 1000.0 / elapsedMillis : copied;
+        }
+    }
+
+    public record Checksum(long count, long crc) {
+    }
+
+    public record Verification(Checksum source, Checksum target) {
+
+        public boolean matches() {
+            return source.equals(target);
+        }
+    }
+
+    public Result run() {
+        int resumeAfter = readCheckpoint();
+        if (resumeAfter > 0) {
+            Main.log("Resuming migration after user id " + resumeAfter);
+        }
+        checkpointId = resumeAfter;
+
+        long started = System.nanoTime();
+        var copied = new AtomicLong();
+        var failure = new AtomicReference<RuntimeException>();
+        var inFlight = new Semaphore(writers * 2);
+
+        ExecutorService pool = Executors.newFixedThreadPool(writers, runnable -> {
+            var thread = new Thread(runnable, "migration-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            try {
+                scanInto(pool, resumeAfter, copied, failure, inFlight, started);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+            inFlight.acquireUninterruptibly(writers * 2);
+        } finally {
+            pool.shutdown();
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("Migration failed after user id " + checkpointId, failure.get());
+        }
+
+        deleteCheckpoint();
+        return new Result(copied.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), resumeAfter);
+    }
+
+    private void scanInto(ExecutorService pool, int resumeAfter, AtomicLong copied,
+                          AtomicReference<RuntimeException> failure, Semaphore inFlight, long started) {
+        long[] lastReport = {started};
+        long[] batchNumber = {0};
+        source.scan(resumeAfter, batchSize, batch -> {
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            long number = batchNumber[0]++;
+            int lastId = batch.get(batch.size() - 1).getId();
+            inFlight.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    target.saveAll(batch);
+                    copied.addAndGet(batch.size());
+                    batchFinished(number, lastId);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+
+            long now = System.nanoTime();
+            if (now - lastReport[0] >= PROGRESS_INTERVAL_NANOS) {
+                lastReport[0] = now;
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - started);
+                Main.log(String.format("Migrated %d users (%.0f users/s)",
+                        copied.get(), copied.get() * 1000.0 / Math.max(1, elapsedMillis)));
+            }
+        });
+    }
+
+    /** Compares the count and an id-ordered CRC32 of every user in the source and the target. */
+    public Verification verify() {
+        return new Verification(checksum(source), checksum(target));
+    }
+
+    static Checksum checksum(UserDAO userDAO) {
+        var crc = new CRC32();
+        var count = new AtomicLong();
+        userDAO.scan(0, 10_000, batch -> {
+            for (User user : batch) {
+                crc.update((user.getId() + "\u0000" + user.getName() + "\u0000" + user.getEmail() + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            count.addAndGet(batch.size());
+        });
+        return new Checksum(count.get(), crc.getValue());
+    }
+
+    /**
+     * Batches can finish out of order; the checkpoint only moves past a batch once every
+     * earlier batch has finished too.
+     */
+    private void batchFinished(long number, int lastId) {
+        progressLock.lock();
+        try {
+            finishedBatches.put(number, lastId);
+            boolean advanced = false;
+            Integer id;
+            while ((id = finishedBatches.remove(nextBatchToCheckpoint)) != null) {
+                checkpointId = id;
+                nextBatchToCheckpoint++;
+                advanced = true;
+            }
+            if (advanced) {
+                writeCheckpoint(checkpointId);
+            }
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private int readCheckpoint() {
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(Files.readString(checkpointFile).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new RuntimeException("Invalid migration checkpoint " + checkpointFile, e);
+        }
+    }
+
+    private void writeCheckpoint(int lastId) {
+        if (checkpointFile == null) {
+            return;
+        }
+        try {
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.writeString(temp, Integer.toString(lastId));
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing migration checkpoint", e);
+        }
+    }
+
+    private void deleteCheckpoint() {
+        if (checkpointFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Error removing migration checkpoint", e);
+        }
+    }
+}
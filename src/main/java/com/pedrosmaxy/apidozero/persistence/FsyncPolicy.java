@@ -0,0 +1,13 @@
+package com.pedrosmaxy.apidozero.persistence;
+
+/**
+ * When the write-ahead log forces appended records to disk.
+ */
+public enum FsyncPolicy {
+    /** Every record is forced before the mutation is applied. */
+    EVERY_OPERATION,
+    /** Concurrent writers share one force; each waits until its own record is covered. */
+    GROUP,
+    /** A background task forces the log on a fixed interval; writers never wait. */
+    INTERVAL
+}
@@ -0,0 +1,121 @@
+package com.pedrosmaxy.apidozero.persistence;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary image of the whole store: a header with the first log segment that is
+ * not covered by the image, then length-prefixed UTF-8 records with the user's version and a
+ * trailing CRC32.
+ */
+class SnapshotFile {
+
+    private static final int MAGIC = 0x55534E50;
+    private static final int VERSION = 2;
+
+    record Contents(long nextSegment, int lastId, List<User> users) {
+    }
+
+    private final Path path;
+
+    SnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    boolean exists() {
+        return Files.exists(path);
+    }
+
+    Contents read() {
+        try (var checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), new CRC32());
+             var input = new DataInputStream(checked)) {
+            if (input.readInt() != MAGIC) {
+                throw new IllegalStateException("Unsupported snapshot format: " + path);
+            }
+            if (input.readInt() != VERSION) {
+                throw new IllegalStateException("Unsupported snapshot format: " + path);
+            }
+            long nextSegment = input.readLong();
+            int lastId = input.readInt();
+            int count = input.readInt();
+
+            List<User> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                var user = new User();
+                user.setId(input.readInt());
+                user.setName(readString(input));
+                user.setEmail(readString(input));
+                user.setVersion(input.readInt());
+                users.add(user);
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (input.readLong() != expected) {
+                throw new IllegalStateException("Corrupt snapshot: " + path);
+            }
+            return new Contents(nextSegment, lastId, users);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading snapshot", e);
+        }
+    }
+
+    /** Writes to a temporary file, forces it and atomically replaces the previous image. */
+    void write(long nextSegment, int lastId, Collection<User> users) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var file = new FileOutputStream(temp.toFile());
+             var checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+             var output = new DataOutputStream(checked)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(nextSegment);
+            output.writeInt(lastId);
+            output.writeInt(users.size());
+            for (User user : users) {
+                output.writeInt(user.getId());
+                writeString(output, user.getName());
+                writeString(output, user.getEmail());
+                output.writeInt(user.getVersion());
+            }
+            output.writeLong(checked.getChecksum().getValue());
+            output.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing snapshot", e);
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error replacing snapshot", e);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
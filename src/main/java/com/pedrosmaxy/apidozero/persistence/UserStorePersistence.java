@@ -0,0 +1,152 @@
+package com.pedrosmaxy.apidozero.persistence;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.util.IntObjectHashMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durability for a memory-resident user store: every mutation is appended to a
+ * write-ahead log before it is applied, and the whole store is periodically written as a
+ * compact binary snapshot so the log can be trimmed. Recovery loads the latest snapshot
+ * and replays the log segments written after it.
+ * <p>
+ * Callers must append records in the same order they apply them, i.e. while holding the
+ * store's write lock, and may call {@link #awaitDurable(long)} after releasing it.
+ */
+public class UserStorePersistence implements AutoCloseable {
+
+    public record RecoveredState(List<User> users, int lastId) {
+    }
+
+    private final SnapshotFile snapshotFile;
+    private final WriteAheadLog log;
+    private final ScheduledExecutorService syncScheduler;
+
+    public UserStorePersistence(Path directory, FsyncPolicy policy) {
+        this(directory, policy, Duration.ofMillis(100));
+    }
+
+    public UserStorePersistence(Path directory, FsyncPolicy policy, Duration syncInterval) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error creating persistence directory", e);
+        }
+        this.snapshotFile = new SnapshotFile(directory.resolve("users.snapshot"));
+        this.log = new WriteAheadLog(directory, policy);
+
+        if (policy == FsyncPolicy.INTERVAL) {
+            long millis = Math.max(1, syncInterval.toMillis());
+            this.syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "user-wal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncScheduler.scheduleWithFixedDelay(this::scheduledSync, millis, millis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncScheduler = null;
+        }
+    }
+
+    /**
+     * Rebuilds the store from the latest snapshot plus the log tail and opens the log for
+     * appending. Must be called once, before any mutation is logged.
+     */
+    public RecoveredState recover() {
+        long fromSegment = 0;
+        int lastId = 0;
+        IntObjectHashMap<User> users = new IntObjectHashMap<>();
+
+        if (snapshotFile.exists()) {
+            var contents = snapshotFile.read();
+            fromSegment = contents.nextSegment();
+            lastId = contents.lastId();
+            users = new IntObjectHashMap<>(contents.users().size());
+            for (User user : contents.users()) {
+                users.put(user.getId(), user);
+            }
+        }
+
+        int[] maxId = {lastId};
+        IntObjectHashMap<User> state = users;
+        log.replay(fromSegment, entry -> {
+            if (entry.operation() == WriteAheadLog.DELETE) {
+                state.remove(entry.id());
+            } else {
+                var user = new User(entry.name(), entry.email());
+                user.setId(entry.id());
+                user.setVersion(entry.version());
+                state.put(entry.id(), user);
+                maxId[0] = Math.max(maxId[0], entry.id());
+            }
+        });
+        log.openForAppend(fromSegment);
+
+        List<User> recovered = state.values();
+        recovered.sort(Comparator.comparingInt(User::getId));
+        return new RecoveredState(recovered, maxId[0]);
+    }
+
+    public long logCreate(User user) {
+        return log.append(WriteAheadLog.CREATE, user.getId(), user.getName(), user.getEmail(), user.getVersion());
+    }
+
+    public long logUpdate(User user) {
+        return log.append(WriteAheadLog.UPDATE, user.getId(), user.getName(), user.getEmail(), user.getVersion());
+    }
+
+    public long logDelete(int id) {
+        return log.append(WriteAheadLog.DELETE, id, null, null, 0);
+    }
+
+    public void awaitDurable(long lsn) {
+        log.awaitDurable(lsn);
+    }
+
+    /**
+     * Starts a checkpoint by sealing the current log segment. Call while holding the
+     * store's write lock, capture the store contents, then release the lock and pass both
+     * to {@link #completeCheckpoint(long, int, Collection)}.
+     */
+    public long beginCheckpoint() {
+        return log.rotate();
+    }
+
+    public void completeCheckpoint(long nextSegment, int lastId, Collection<User> users) {
+        snapshotFile.write(nextSegment, lastId, new ArrayList<>(users));
+        log.deleteSegmentsBefore(nextSegment);
+    }
+
+    /** Number of records appended but not yet known to be on disk. */
+    public long unsyncedRecords() {
+        return log.writtenLsn() - log.durableLsn();
+    }
+
+    private void scheduledSync() {
+        try {
+            log.sync();
+        } catch (RuntimeException e) {
+            System.err.println("Error syncing write-ahead log: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        log.close();
+    }
+}
@@ -0,0 +1,313 @@
+package com.pedrosmaxy.apidozero.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, append-only log of user mutations. Each record is framed as
+ * {@code [int length][int crc32][payload]}; replay stops at the first torn or corrupt
+ * record, which can only be the unsynced tail of the newest segment. Create and update
+ * payloads end with the user's version.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    static final byte CREATE = 1;
+    static final byte UPDATE = 2;
+    static final byte DELETE = 3;
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+
+    record Entry(byte operation, int id, String name, String email, int version) {
+    }
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private FileChannel channel;
+    private long segment;
+    private long writtenLsn;
+    private volatile long durableLsn;
+
+    WriteAheadLog(Path directory, FsyncPolicy policy) {
+        this.directory = directory;
+        this.policy = policy;
+    }
+
+    /** Replays every record in segments numbered {@code fromSegment} or above, in order. */
+    void replay(long fromSegment, Consumer<Entry> consumer) {
+        List<Long> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            long number = segments.get(i);
+            if (number < fromSegment) {
+                continue;
+            }
+            long validLength = replaySegment(segmentPath(number), consumer);
+            boolean newest = i == segments.size() - 1;
+            if (newest) {
+                truncate(segmentPath(number), validLength);
+            }
+        }
+    }
+
+    /** Opens the newest segment (at least {@code minimumSegment}) for appending. */
+    void openForAppend(long minimumSegment) {
+        List<Long> segments = segments();
+        long newest = segments.isEmpty() ? minimumSegment : Math.max(minimumSegment, segments.getLast());
+        appendLock.lock();
+        try {
+            openSegment(newest);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long append(byte operation, int id, String name, String email, int version) {
+        ByteBuffer record = encode(operation, id, name, email, version);
+        appendLock.lock();
+        try {
+            if (channel == null) {
+                throw new IllegalStateException("Write-ahead log is not open");
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            long lsn = ++writtenLsn;
+            if (policy == FsyncPolicy.EVERY_OPERATION) {
+                channel.force(false);
+                durableLsn = lsn;
+            }
+            return lsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error appending to write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until {@code lsn} is on disk under the {@link FsyncPolicy#GROUP} policy. The
+     * first waiter forces everything written so far; waiters queued behind it usually find
+     * their record already covered and return without another force.
+     */
+    void awaitDurable(long lsn) {
+        if (policy != FsyncPolicy.GROUP || durableLsn >= lsn) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableLsn < lsn) {
+                sync();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Forces every record written so far. Used by the interval policy and on close. */
+    void sync() {
+        syncLock.lock();
+        try {
+            long target;
+            FileChannel current;
+            appendLock.lock();
+            try {
+                target = writtenLsn;
+                current = channel;
+            } finally {
+                appendLock.unlock();
+            }
+            if (current == null || durableLsn >= target) {
+                return;
+            }
+            current.force(false);
+            durableLsn = Math.max(durableLsn, target);
+        } catch (ClosedChannelException e) {
+            // rotate() or close() forced the segment before closing it
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error syncing write-ahead log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Seals the current segment and starts a new one; returns the new segment number. */
+    long rotate() {
+        appendLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                durableLsn = writtenLsn;
+                channel.close();
+            }
+            openSegment(segment + 1);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error rotating write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void deleteSegmentsBefore(long keepFrom) {
+        for (long number : segments()) {
+            if (number < keepFrom) {
+                try {
+                    Files.deleteIfExists(segmentPath(number));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error deleting write-ahead log segment", e);
+                }
+            }
+        }
+    }
+
+    long writtenLsn() {
+        appendLock.lock();
+        try {
+            return writtenLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    long durableLsn() {
+        return durableLsn;
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+                durableLsn = writtenLsn;
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error closing write-ahead log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void openSegment(long number) {
+        try {
+            channel = FileChannel.open(segmentPath(number),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segment = number;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening write-ahead log segment", e);
+        }
+    }
+
+    private long replaySegment(Path path, Consumer<Entry> consumer) {
+        try (var input = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) input.size());
+            while (data.hasRemaining() && input.read(data) >= 0) {
+                // keep reading until the whole segment is in memory
+            }
+            data.flip();
+
+            long valid = 0;
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= HEADER_SIZE) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = data.slice(data.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(decode(payload));
+                data.position(data.position() + length);
+                valid = data.position();
+            }
+            return valid;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error replaying write-ahead log", e);
+        }
+    }
+
+    private void truncate(Path path, long length) {
+        try (var output = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (output.size() > length) {
+                output.truncate(length);
+                output.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error truncating write-ahead log", e);
+        }
+    }
+
+    private List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Long> numbers = new ArrayList<>();
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> numbers.add(Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+            numbers.sort(Long::compare);
+            return numbers;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error listing write-ahead log segments", e);
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static ByteBuffer encode(byte operation, int id, String name, String email, int version) {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] emailBytes = email != null ? email.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = 1 + 4 + (operation == DELETE ? 0 : 12 + nameBytes.length + emailBytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+        record.putInt(length).putInt(0).put(operation).putInt(id);
+        if (operation != DELETE) {
+            record.putInt(nameBytes.length).put(nameBytes).putInt(emailBytes.length).put(emailBytes).putInt(version);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    private static Entry decode(ByteBuffer payload) {
+        byte operation = payload.get();
+        int id = payload.getInt();
+        if (operation == DELETE) {
+            return new Entry(operation, id, null, null, 0);
+        }
+        String name = readString(payload);
+        String email = readString(payload);
+        return new Entry(operation, id, name, email, payload.getInt());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
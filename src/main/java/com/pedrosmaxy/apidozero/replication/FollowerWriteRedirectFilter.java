@@ -0,0 +1,37 @@
+package com.pedrosmaxy.apidozero.replication;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Followers only serve reads. Writes are answered with a {@code 307 Temporary Redirect} to the
+ * same URI on the leader, which keeps the method and body so clients can simply follow it.
+ */
+public class FollowerWriteRedirectFilter extends Filter {
+
+    private final String leaderUrl;
+
+    public FollowerWriteRedirectFilter(String leaderUrl) {
+        this.leaderUrl = leaderUrl.endsWith("/") ? leaderUrl.substring(0, leaderUrl.length() - 1) : leaderUrl;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        switch (exchange.getRequestMethod()) {
+            case "GET", "HEAD", "OPTIONS" -> chain.doFilter(exchange);
+            default -> {
+                exchange.getResponseHeaders().set("Location", leaderUrl + exchange.getRequestURI());
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.sendResponseHeaders(307, -1);
+                exchange.close();
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Redirects writes on a follower to the replication leader";
+    }
+}
@@ -0,0 +1,183 @@
+package com.pedrosmaxy.apidozero.replication;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Line format of the replication stream: one flat JSON object per line. Only strings and
+ * integers are used, so the decoder is a small hand-written scanner rather than a JSON library.
+ */
+final class ReplicationCodec {
+
+    static final String SNAPSHOT = "snapshot";
+    static final String USER = "user";
+    static final String HEARTBEAT = "heartbeat";
+    static final String RESET = "reset";
+
+    private ReplicationCodec() {
+    }
+
+    static String snapshotHeader(long epoch, long sequence, int count) {
+        return "{\"type\":\"" + SNAPSHOT + "\",\"epoch\":" + epoch + ",\"seq\":" + sequence + ",\"count\":" + count + "}";
+    }
+
+    static String user(User user) {
+        return "{\"type\":\"" + USER + "\",\"id\":" + user.getId() +
+                ",\"name\":" + quote(user.getName()) +
+                ",\"email\":" + quote(user.getEmail()) +
+                ",\"version\":" + user.getVersion() + "}";
+    }
+
+    static String event(UserChangeEvent event) {
+        var sb = new StringBuilder(96)
+                .append("{\"type\":\"").append(event.type().eventName())
+                .append("\",\"seq\":").append(event.sequence())
+                .append(",\"id\":").append(event.userId());
+        if (event.user() != null) {
+            sb.append(",\"name\":").append(quote(event.user().getName()))
+                    .append(",\"email\":").append(quote(event.user().getEmail()))
+                    .append(",\"version\":").append(event.user().getVersion());
+        }
+        return sb.append(",\"ts\":").append(event.timestamp()).append('}').toString();
+    }
+
+    static String heartbeat(long epoch, long headSequence, long timestamp) {
+        return "{\"type\":\"" + HEARTBEAT + "\",\"epoch\":" + epoch + ",\"head\":" + headSequence + ",\"ts\":" + timestamp + "}";
+    }
+
+    static String reset() {
+        return "{\"type\":\"" + RESET + "\"}";
+    }
+
+    static User toUser(Map<String, String> fields) {
+        var user = new User(fields.get("name"), fields.get("email"));
+        user.setId(Integer.parseInt(fields.get("id")));
+        String version = fields.get("version");
+        if (version != null) {
+            user.setVersion(Integer.parseInt(version));
+        }
+        return user;
+    }
+
+    static long longField(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field in replication message: " + name);
+        }
+        return Long.parseLong(value);
+    }
+
+    static Map<String, String> decode(String line) {
+        Map<String, String> fields = new HashMap<>();
+        int i = skipWhitespace(line, 0);
+        expect(line, i++, '{');
+        i = skipWhitespace(line, i);
+        if (i < line.length() && line.charAt(i) == '}') {
+            return fields;
+        }
+
+        while (true) {
+            var key = new StringBuilder();
+            i = readString(line, skipWhitespace(line, i), key);
+            i = skipWhitespace(line, i);
+            expect(line, i++, ':');
+            i = skipWhitespace(line, i);
+
+            if (i < line.length() && line.charAt(i) == '"') {
+                var value = new StringBuilder();
+                i = readString(line, i, value);
+                fields.put(key.toString(), value.toString());
+            } else {
+                int start = i;
+                while (i < line.length() && line.charAt(i) != ',' && line.charAt(i) != '}') {
+                    i++;
+                }
+                String value = line.substring(start, i).trim();
+                fields.put(key.toString(), "null".equals(value) ? null : value);
+            }
+
+            i = skipWhitespace(line, i);
+            if (i < line.length() && line.charAt(i) == ',') {
+                i++;
+                continue;
+            }
+            expect(line, i, '}');
+            return fields;
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        var sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static int readString(String line, int i, StringBuilder out) {
+        expect(line, i++, '"');
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                return i;
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (i >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(i++);
+            switch (escaped) {
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'u' -> {
+                    if (i + 4 > line.length()) {
+                        throw new IllegalArgumentException("Truncated escape in replication message");
+                    }
+                    out.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                    i += 4;
+                }
+                default -> out.append(escaped);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string in replication message");
+    }
+
+    private static int skipWhitespace(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static void expect(String line, int i, char expected) {
+        if (i >= line.length() || line.charAt(i) != expected) {
+            throw new IllegalArgumentException("Malformed replication message: " + line);
+        }
+    }
+}
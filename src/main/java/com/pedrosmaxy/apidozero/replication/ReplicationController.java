@@ -0,0 +1,163 @@
+package com.pedrosmaxy.apidozero.replication;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOPublishingDecorator;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves {@code /api/replication}. On a leader it exposes the snapshot and the ordered change
+ * stream (both newline-delimited JSON) that followers consume; on every node it reports the
+ * replication status, including the lag of a follower.
+ */
+public class ReplicationController implements HttpHandler {
+
+    static final long HEARTBEAT_MILLIS = 1_000;
+
+    private final UserDAOPublishingDecorator leaderDAO;
+    private final UserChangeFeed changeFeed;
+    private final ReplicationFollower follower;
+
+    private ReplicationController(UserDAOPublishingDecorator leaderDAO, ReplicationFollower follower) {
+        this.leaderDAO = leaderDAO;
+        this.changeFeed = leaderDAO != null ? leaderDAO.getChangeFeed() : null;
+        this.follower = follower;
+    }
+
+    public static ReplicationController leader(UserDAOPublishingDecorator userDAO) {
+        return new ReplicationController(userDAO, null);
+    }
+
+    public static ReplicationController follower(ReplicationFollower follower) {
+        return new ReplicationController(null, follower);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        try {
+            if (!"GET".equals(method)) {
+                sendJson(exchange, 405, "{\"error\": \"Method not allowed\"}");
+            } else if ("/api/replication/status".equals(path)) {
+                sendJson(exchange, 200, statusJson());
+            } else if ("/api/replication/snapshot".equals(path) && leaderDAO != null) {
+                Main.log("Streaming replication snapshot to " + exchange.getRemoteAddress());
+                streamSnapshot(exchange);
+            } else if ("/api/replication/stream".equals(path) && leaderDAO != null) {
+                Main.log("Follower " + exchange.getRemoteAddress() + " connected");
+                streamChanges(exchange, longParam(exchange, "since"), longParam(exchange, "epoch"));
+            } else {
+                sendJson(exchange, 404, "{\"error\": \"Endpoint not found\"}");
+            }
+        } catch (IOException e) {
+            Main.log("Replication stream closed: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String statusJson() {
+        if (follower == null) {
+            return "{\"role\": \"leader\", \"sequence\": " + changeFeed.currentSequence() +
+                    ", \"subscribers\": " + changeFeed.subscriberCount() + "}";
+        }
+        ReplicationStatus status = follower.status();
+        return "{\"role\": \"follower\"" +
+                ", \"leader\": \"" + follower.getLeaderUrl() + "\"" +
+                ", \"appliedSequence\": " + status.appliedSequence() +
+                ", \"leaderSequence\": " + status.leaderSequence() +
+                ", \"lagEvents\": " + status.lagEvents() +
+                ", \"lagMillis\": " + status.lagMillis() +
+                ", \"connected\": " + status.connected() + "}";
+    }
+
+    private void streamSnapshot(HttpExchange exchange) throws IOException {
+        UserDAOPublishingDecorator.Snapshot snapshot = leaderDAO.snapshot();
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (var writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            writer.write(ReplicationCodec.snapshotHeader(changeFeed.epoch(), snapshot.sequence(), snapshot.users().size()));
+            writer.write('\n');
+            for (User user : snapshot.users()) {
+                writer.write(ReplicationCodec.user(user));
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Streams events after {@code since}. A follower whose {@code epoch} (from its snapshot) is
+     * not this feed's is told to reset: its sequence belongs to an earlier run of the leader.
+     */
+    private void streamChanges(HttpExchange exchange, long since, long epoch) throws IOException {
+        try (var subscription = changeFeed.subscribe(since)) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream output = exchange.getResponseBody();
+            if (subscription.isReset() || epoch != 0 && epoch != changeFeed.epoch()) {
+                writeLine(output, ReplicationCodec.reset());
+                return;
+            }
+
+            writeLine(output, ReplicationCodec.heartbeat(changeFeed.epoch(), changeFeed.currentSequence(), System.currentTimeMillis()));
+            while (true) {
+                UserChangeEvent event = subscription.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    writeLine(output, ReplicationCodec.event(event));
+                } else if (subscription.isDropped()) {
+                    return;
+                } else {
+                    writeLine(output, ReplicationCodec.heartbeat(changeFeed.epoch(), changeFeed.currentSequence(), System.currentTimeMillis()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long longParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    try {
+                        return Math.max(0, Long.parseLong(pair.substring(name.length() + 1)));
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    private void writeLine(OutputStream output, String line) throws IOException {
+        output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private void sendJson(HttpExchange exchange, int statusCode, String response) throws IOException {
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.pedrosmaxy.apidozero.replication;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a local {@link UserDAO} in sync with a leader. On start (and whenever the leader
+ * can no longer replay the missing range or has restarted) it loads a consistent snapshot,
+ * then applies the ordered change stream from the snapshot's sequence onwards. Connection
+ * failures are retried with exponential backoff, resuming from the last applied sequence.
+ */
+public class ReplicationFollower implements AutoCloseable {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2_000;
+    private static final int READ_TIMEOUT_MILLIS = (int) (ReplicationController.HEARTBEAT_MILLIS * 5);
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final String leaderUrl;
+    private final UserDAO userDAO;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean connected;
+    private volatile boolean needsSnapshot = true;
+    private volatile long appliedSequence;
+    // The leader's feed epoch the applied sequence belongs to, from the last snapshot.
+    private volatile long leaderEpoch;
+    private volatile long leaderSequence;
+    private volatile long lagMillis;
+    private volatile HttpURLConnection currentConnection;
+
+    public ReplicationFollower(String leaderUrl, UserDAO userDAO) {
+        this.leaderUrl = leaderUrl.endsWith("/") ? leaderUrl.substring(0, leaderUrl.length() - 1) : leaderUrl;
+        this.userDAO = userDAO;
+        this.worker = Thread.ofVirtual().name("replication-follower").unstarted(this::run);
+    }
+
+    public ReplicationFollower start() {
+        worker.start();
+        return this;
+    }
+
+    public String getLeaderUrl() {
+        return leaderUrl;
+    }
+
+    public ReplicationStatus status() {
+        long applied = appliedSequence;
+        long leader = Math.max(leaderSequence, applied);
+        return new ReplicationStatus(applied, leader, leader - applied,
+                applied < leader ? lagMillis : 0, connected);
+    }
+
+    private void run() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            try {
+                if (needsSnapshot) {
+                    loadSnapshot();
+                    needsSnapshot = false;
+                }
+                followStream();
+                backoff = MIN_BACKOFF_MILLIS;
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    Main.log("Replication from " + leaderUrl + " interrupted: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void loadSnapshot() throws IOException {
+        try (BufferedReader reader = open("/api/replication/snapshot")) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("Empty snapshot from leader");
+            }
+            Map<String, String> fields = ReplicationCodec.decode(header);
+            if (!ReplicationCodec.SNAPSHOT.equals(fields.get("type"))) {
+                throw new IOException("Unexpected snapshot header: " + header);
+            }
+            long epoch = ReplicationCodec.longField(fields, "epoch");
+            long sequence = ReplicationCodec.longField(fields, "seq");
+
+            long count = ReplicationCodec.longField(fields, "count");
+
+            // Staged in full first: a dropped connection leaves the current data in place.
+            List<User> users = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                users.add(ReplicationCodec.toUser(ReplicationCodec.decode(line)));
+            }
+            if (users.size() != count) {
+                throw new IOException("Snapshot ended after " + users.size() + " of " + count + " users");
+            }
+            userDAO.replaceAll(users);
+
+            leaderEpoch = epoch;
+            appliedSequence = sequence;
+            leaderSequence = sequence;
+            Main.log("Replication snapshot loaded at sequence " + sequence);
+        }
+    }
+
+    private void followStream() throws IOException {
+        try (BufferedReader reader = open("/api/replication/stream?since=" + appliedSequence + "&epoch=" + leaderEpoch)) {
+            connected = true;
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                Map<String, String> fields = ReplicationCodec.decode(line);
+                String type = fields.get("type");
+
+                if (ReplicationCodec.HEARTBEAT.equals(type)) {
+                    if (ReplicationCodec.longField(fields, "epoch") != leaderEpoch) {
+                        Main.log("Leader restarted since the last snapshot, reloading it");
+                        needsSnapshot = true;
+                        return;
+                    }
+                    leaderSequence = ReplicationCodec.longField(fields, "head");
+                } else if (ReplicationCodec.RESET.equals(type)) {
+                    Main.log("Leader can no longer replay from sequence " + appliedSequence + ", reloading snapshot");
+                    needsSnapshot = true;
+                    return;
+                } else if (!applyOrReload(type, fields)) {
+                    needsSnapshot = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Leader writes to different users publish in the order they finish, which can differ from
+     * the order they committed in, e.g. when one frees an email the other then takes. An event
+     * the local store rejects is therefore resolved by reloading the snapshot instead of
+     * retrying it forever.
+     */
+    private boolean applyOrReload(String type, Map<String, String> fields) {
+        try {
+            return apply(type, fields);
+        } catch (RuntimeException e) {
+            Main.log("Replication event rejected locally (" + e.getMessage() + "), reloading snapshot");
+            return false;
+        }
+    }
+
+    private boolean apply(String type, Map<String, String> fields) {
+        long sequence = ReplicationCodec.longField(fields, "seq");
+        if (sequence <= appliedSequence) {
+            return true;
+        }
+        if (sequence != appliedSequence + 1) {
+            Main.log("Replication gap: expected " + (appliedSequence + 1) + " but got " + sequence);
+            return false;
+        }
+
+        int id = Integer.parseInt(fields.get("id"));
+        switch (type) {
+            case "created", "updated" -> userDAO.saveAll(List.of(ReplicationCodec.toUser(fields)));
+            case "deleted" -> {
+                if (userDAO.findById(id).isPresent()) {
+                    userDAO.delete(id);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown replication event: " + type);
+        }
+
+        appliedSequence = sequence;
+        leaderSequence = Math.max(leaderSequence, sequence);
+        lagMillis = Math.max(0, System.currentTimeMillis() - ReplicationCodec.longField(fields, "ts"));
+        return true;
+    }
+
+    private BufferedReader open(String path) throws IOException {
+        var connection = (HttpURLConnection) URI.create(leaderUrl + path).toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        currentConnection = connection;
+
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            connection.disconnect();
+            throw new IOException("Leader answered " + status + " for " + path);
+        }
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        HttpURLConnection connection = currentConnection;
+        if (connection != null) {
+            connection.disconnect();
+        }
+        worker.interrupt();
+        try {
+            worker.join(READ_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
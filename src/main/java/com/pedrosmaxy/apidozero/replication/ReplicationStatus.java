@@ -0,0 +1,10 @@
+package com.pedrosmaxy.apidozero.replication;
+
+/**
+ * Point-in-time view of a follower's progress. {@code lagEvents} is how many leader events
+ * have not been applied yet and {@code lagMillis} how old the last applied event was when it
+ * arrived; both are zero once the follower has caught up with the last heartbeat.
+ */
+public record ReplicationStatus(long appliedSequence, long leaderSequence, long lagEvents,
+                                long lagMillis, boolean connected) {
+}
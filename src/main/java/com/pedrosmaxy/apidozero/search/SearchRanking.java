@@ -0,0 +1,81 @@
+package com.pedrosmaxy.apidozero.search;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Relevance rules shared by the in-memory search implementations: exact match, prefix
+ * match, word prefix, then any substring (three characters or more); ties go to the
+ * shorter name and then the lower id.
+ */
+public final class SearchRanking {
+
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::score)
+            .thenComparingInt(match -> match.name() == null ? 0 : match.name().length())
+            .thenComparingInt(Match::id);
+
+    private record Match(int id, String name, String email, int score) {
+    }
+
+    private SearchRanking() {
+    }
+
+    public static String fold(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /** Returns the rank of the best matching field, or {@code -1} when neither matches. */
+    public static int score(String foldedName, String foldedEmail, String foldedQuery) {
+        int best = Math.min(score(foldedName, foldedQuery), score(foldedEmail, foldedQuery));
+        return best == Integer.MAX_VALUE ? -1 : best;
+    }
+
+    private static int score(String text, String folded) {
+        if (text.equals(folded)) return 0;
+        if (text.startsWith(folded)) return 1;
+        int index = text.indexOf(folded);
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(text.charAt(index - 1))) return 2;
+            index = text.indexOf(folded, index + 1);
+        }
+        if (folded.length() >= 3 && text.contains(folded)) return 3;
+        return Integer.MAX_VALUE;
+    }
+
+    /** Keeps the {@code limit} best matches seen so far. */
+    public static class TopMatches {
+        private final int limit;
+        private final PriorityQueue<Match> best = new PriorityQueue<>(RANKING.reversed());
+
+        public TopMatches(int limit) {
+            this.limit = limit;
+        }
+
+        public void add(int id, String name, String email, int score) {
+            if (score < 0) {
+                return;
+            }
+            best.add(new Match(id, name, email, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        public List<User> toList() {
+            List<Match> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            List<User> users = new ArrayList<>(ranked.size());
+            for (Match match : ranked) {
+                var user = new User(match.name(), match.email());
+                user.setId(match.id());
+                users.add(user);
+            }
+            return users;
+        }
+    }
+}
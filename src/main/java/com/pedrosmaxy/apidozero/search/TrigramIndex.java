@@ -0,0 +1,213 @@
+package com.pedrosmaxy.apidozero.search;
+
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index from trigrams of {@code name} and {@code email} to user ids.
+ * Queries of three or more characters match substrings; shorter queries match the start
+ * of any word, using boundary-padded grams. Candidates are verified against the stored
+ * text and ranked: exact match, prefix match, word prefix, then any substring.
+ */
+public class TrigramIndex {
+
+    private static final char BOUNDARY = '\u0001';
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Document(int id, String name, String email, int version, String foldedName, String foldedEmail) {
+    }
+
+    public void putAll(Collection<User> users) {
+        lock.writeLock().lock();
+        try {
+            for (User user : users) {
+                putLocked(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Swaps the indexed users for {@code users}; searches see either the old or the new ones. */
+    public void replaceAll(Collection<User> users) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            for (User user : users) {
+                putLocked(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(User user) {
+        lock.writeLock().lock();
+        try {
+            putLocked(user);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The indexed user with {@code id}, with the version it was indexed with. */
+    public Optional<User> get(int id) {
+        lock.readLock().lock();
+        try {
+            Document document = documents.get(id);
+            return Optional.ofNullable(document != null ? toUser(document) : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every indexed user {@code filter} accepts, with the version it was indexed with, so
+     * stores that keep this index can answer listings without reading their storage.
+     */
+    public List<User> filter(Predicate<User> filter) {
+        List<User> users = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Document document : documents.values()) {
+                User user = toUser(document);
+                if (filter.test(user)) {
+                    users.add(user);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return users;
+    }
+
+    private static User toUser(Document document) {
+        var user = new User(document.name(), document.email());
+        user.setId(document.id());
+        user.setVersion(document.version());
+        return user;
+    }
+
+    public List<User> search(String query, int limit) {
+        String folded = fold(query).trim();
+        if (folded.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        var matches = new SearchRanking.TopMatches(limit);
+        lock.readLock().lock();
+        try {
+            for (Integer id : candidates(folded)) {
+                Document document = documents.get(id);
+                matches.add(document.id(), document.name(), document.email(),
+                        SearchRanking.score(document.foldedName(), document.foldedEmail(), folded));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches.toList();
+    }
+
+    private Set<Integer> candidates(String folded) {
+        if (folded.length() < 3) {
+            String gram = String.valueOf(BOUNDARY).repeat(3 - folded.length()) + folded;
+            return postings.getOrDefault(gram, Set.of());
+        }
+
+        Set<Integer> smallest = null;
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            Set<Integer> posting = postings.get(folded.substring(i, i + 3));
+            if (posting == null) {
+                return Set.of();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private void putLocked(User user) {
+        removeLocked(user.getId());
+        var document = new Document(user.getId(), user.getName(), user.getEmail(), user.getVersion(),
+                fold(user.getName()), fold(user.getEmail()));
+        documents.put(document.id(), document);
+        for (String gram : grams(document)) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(document.id());
+        }
+    }
+
+    private void removeLocked(int id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : grams(previous)) {
+            Set<Integer> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private Set<String> grams(Document document) {
+        Set<String> grams = new HashSet<>();
+        addGrams(grams, document.foldedName());
+        addGrams(grams, document.foldedEmail());
+        return grams;
+    }
+
+    private void addGrams(Set<String> grams, String text) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(text.substring(i, i + 3));
+        }
+        for (int i = 0; i < text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart) {
+                grams.add("" + BOUNDARY + BOUNDARY + text.charAt(i));
+                if (i + 1 < text.length()) {
+                    grams.add("" + BOUNDARY + text.charAt(i) + text.charAt(i + 1));
+                }
+            }
+        }
+    }
+
+    private static String fold(String text) {
+        return SearchRanking.fold(text);
+    }
+}
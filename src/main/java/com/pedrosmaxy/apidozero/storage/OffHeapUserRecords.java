@@ -0,0 +1,339 @@
+package com.pedrosmaxy.apidozero.storage;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.util.IntLongHashMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores user records as UTF-8 bytes in direct (off-heap) buffers. Each record is laid out
+ * as {@code [int id][int nameLength][int emailLength][int version][name][email]} and located through
+ * an int-keyed index of {@code slab << 32 | offset} addresses. The email index is an
+ * open-addressing table of {@code (hash, id)} pairs that compares the stored bytes on a
+ * hash hit, so no {@code String} or {@code User} is kept on the heap per record.
+ * <p>
+ * Updates append a new copy of the record; the space of the old one is reclaimed by
+ * compaction once it outweighs the live data. Not thread-safe.
+ */
+public class OffHeapUserRecords {
+
+    private static final int DEFAULT_SLAB_SIZE = 4 << 20;
+    private static final int HEADER_SIZE = 16;
+    private static final float EMAIL_LOAD_FACTOR = 0.6f;
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(int id, String name, String email);
+    }
+
+    private final int slabSize;
+    private List<ByteBuffer> slabs = new ArrayList<>();
+    private IntLongHashMap addresses = new IntLongHashMap();
+    private int[] emailIds = new int[16];
+    private int[] emailHashes = new int[16];
+    private int emailCount;
+    private long liveBytes;
+    private long garbageBytes;
+
+    public OffHeapUserRecords() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapUserRecords(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    public int size() {
+        return addresses.size();
+    }
+
+    public boolean contains(int id) {
+        return addresses.containsKey(id);
+    }
+
+    /** Materialises the record as a new {@link User}, or returns {@code null}. */
+    public User read(int id) {
+        long address = addresses.get(id);
+        if (address == IntLongHashMap.MISSING) {
+            return null;
+        }
+        ByteBuffer slab = slabs.get(slabIndex(address));
+        int offset = offset(address);
+        int nameLength = slab.getInt(offset + 4);
+        int emailLength = slab.getInt(offset + 8);
+
+        var user = new User(decode(slab, offset + HEADER_SIZE, nameLength),
+                decode(slab, offset + HEADER_SIZE + nameLength, emailLength));
+        user.setId(id);
+        user.setVersion(slab.getInt(offset + 12));
+        return user;
+    }
+
+    /** Returns the stored version of the record, or {@code 0} when there is none. */
+    public int version(int id) {
+        long address = addresses.get(id);
+        if (address == IntLongHashMap.MISSING) {
+            return 0;
+        }
+        return slabs.get(slabIndex(address)).getInt(offset(address) + 12);
+    }
+
+    /** Returns the id of the record with this email, or {@code 0} when there is none. */
+    public int findIdByEmail(String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(email);
+        int mask = emailIds.length - 1;
+        int index = hash & mask;
+        while (emailIds[index] != 0) {
+            if (emailHashes[index] == hash && emailEquals(emailIds[index], bytes)) {
+                return emailIds[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    public void put(int id, String name, String email) {
+        put(id, name, email, 1);
+    }
+
+    /** Inserts or replaces the record with the given id. The caller checks email uniqueness. */
+    public void put(int id, String name, String email, int version) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Ids must be positive");
+        }
+        remove(id);
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_SIZE + nameBytes.length + emailBytes.length;
+        long address = append(id, version, nameBytes, emailBytes, length);
+
+        addresses.put(id, address);
+        liveBytes += length;
+        insertEmail(id, hash(email));
+    }
+
+    public boolean remove(int id) {
+        long address = addresses.remove(id);
+        if (address == IntLongHashMap.MISSING) {
+            return false;
+        }
+        ByteBuffer slab = slabs.get(slabIndex(address));
+        int offset = offset(address);
+        int nameLength = slab.getInt(offset + 4);
+        int emailLength = slab.getInt(offset + 8);
+        String email = decode(slab, offset + HEADER_SIZE + nameLength, emailLength);
+
+        removeEmail(id, hash(email));
+        int length = HEADER_SIZE + nameLength + emailLength;
+        liveBytes -= length;
+        garbageBytes += length;
+        if (garbageBytes > liveBytes && garbageBytes > slabSize) {
+            compact();
+        }
+        return true;
+    }
+
+    /** Decodes every record; strings are only materialised for the duration of the call. */
+    public void forEach(RecordVisitor visitor) {
+        addresses.forEach((id, address) -> {
+            ByteBuffer slab = slabs.get(slabIndex(address));
+            int offset = offset(address);
+            int nameLength = slab.getInt(offset + 4);
+            int emailLength = slab.getInt(offset + 8);
+            visitor.visit(id, decode(slab, offset + HEADER_SIZE, nameLength),
+                    decode(slab, offset + HEADER_SIZE + nameLength, emailLength));
+        });
+    }
+
+    /**
+     * Decodes only the records whose name or email might contain {@code foldedQuery} once
+     * lower-cased: those containing it ignoring ASCII case, plus any record with non-ASCII
+     * bytes, whose Unicode case folding is left to the visitor. Every other record is skipped
+     * without creating a string.
+     */
+    public void forEachMatching(String foldedQuery, RecordVisitor visitor) {
+        byte[] query = foldedQuery.getBytes(StandardCharsets.UTF_8);
+        addresses.forEach((id, address) -> {
+            ByteBuffer slab = slabs.get(slabIndex(address));
+            int offset = offset(address);
+            int nameLength = slab.getInt(offset + 4);
+            int emailLength = slab.getInt(offset + 8);
+            int nameStart = offset + HEADER_SIZE;
+            int emailStart = nameStart + nameLength;
+            if (mightContain(slab, nameStart, nameLength, query) || mightContain(slab, emailStart, emailLength, query)) {
+                visitor.visit(id, decode(slab, nameStart, nameLength), decode(slab, emailStart, emailLength));
+            }
+        });
+    }
+
+    /** The highest id stored, or {@code 0} when there are no records. */
+    public int maxId() {
+        int[] max = {0};
+        addresses.forEach((id, address) -> max[0] = Math.max(max[0], id));
+        return max[0];
+    }
+
+    /** Bytes reserved off-heap, including reclaimable garbage and unused slab tails. */
+    public long reservedBytes() {
+        long total = 0;
+        for (ByteBuffer slab : slabs) {
+            total += slab.capacity();
+        }
+        return total;
+    }
+
+    public long liveBytes() {
+        return liveBytes;
+    }
+
+    private long append(int id, int version, byte[] nameBytes, byte[] emailBytes, int length) {
+        ByteBuffer slab = slabs.isEmpty() ? null : slabs.getLast();
+        if (slab == null || slab.remaining() < length) {
+            slab = ByteBuffer.allocateDirect(Math.max(slabSize, length));
+            slabs.add(slab);
+        }
+        int offset = slab.position();
+        slab.putInt(id).putInt(nameBytes.length).putInt(emailBytes.length).putInt(version).put(nameBytes).put(emailBytes);
+        return ((long) (slabs.size() - 1) << 32) | offset;
+    }
+
+    private void compact() {
+        List<ByteBuffer> oldSlabs = slabs;
+        IntLongHashMap oldAddresses = addresses;
+        slabs = new ArrayList<>();
+        addresses = new IntLongHashMap(oldAddresses.size());
+
+        oldAddresses.forEach((id, address) -> {
+            ByteBuffer slab = oldSlabs.get(slabIndex(address));
+            int offset = offset(address);
+            int length = HEADER_SIZE + slab.getInt(offset + 4) + slab.getInt(offset + 8);
+
+            ByteBuffer target = slabs.isEmpty() ? null : slabs.getLast();
+            if (target == null || target.remaining() < length) {
+                target = ByteBuffer.allocateDirect(Math.max(slabSize, length));
+                slabs.add(target);
+            }
+            int newOffset = target.position();
+            target.put(slab.slice(offset, length));
+            addresses.put(id, ((long) (slabs.size() - 1) << 32) | newOffset);
+        });
+        garbageBytes = 0;
+    }
+
+    private static boolean mightContain(ByteBuffer slab, int start, int length, byte[] query) {
+        for (int i = start; i < start + length; i++) {
+            if (slab.get(i) < 0) {
+                return true;
+            }
+        }
+        for (int i = start; i <= start + length - query.length; i++) {
+            int matched = 0;
+            while (matched < query.length && asciiLower(slab.get(i + matched)) == query[matched]) {
+                matched++;
+            }
+            if (matched == query.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte asciiLower(byte value) {
+        return value >= 'A' && value <= 'Z' ? (byte) (value + ('a' - 'A')) : value;
+    }
+
+    private boolean emailEquals(int id, byte[] email) {
+        long address = addresses.get(id);
+        ByteBuffer slab = slabs.get(slabIndex(address));
+        int offset = offset(address);
+        int nameLength = slab.getInt(offset + 4);
+        int emailLength = slab.getInt(offset + 8);
+        return emailLength == email.length
+                && slab.slice(offset + HEADER_SIZE + nameLength, emailLength).mismatch(ByteBuffer.wrap(email)) == -1;
+    }
+
+    private void insertEmail(int id, int hash) {
+        if (emailCount + 1 > emailIds.length * EMAIL_LOAD_FACTOR) {
+            resizeEmailTable(emailIds.length << 1);
+        }
+        int mask = emailIds.length - 1;
+        int index = hash & mask;
+        while (emailIds[index] != 0) {
+            index = (index + 1) & mask;
+        }
+        emailIds[index] = id;
+        emailHashes[index] = hash;
+        emailCount++;
+    }
+
+    private void removeEmail(int id, int hash) {
+        int mask = emailIds.length - 1;
+        int gap = hash & mask;
+        while (emailIds[gap] != id) {
+            if (emailIds[gap] == 0) {
+                return;
+            }
+            gap = (gap + 1) & mask;
+        }
+
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (emailIds[index] == 0) {
+                break;
+            }
+            int home = emailHashes[index] & mask;
+            boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                emailIds[gap] = emailIds[index];
+                emailHashes[gap] = emailHashes[index];
+                gap = index;
+            }
+        }
+        emailIds[gap] = 0;
+        emailHashes[gap] = 0;
+        emailCount--;
+    }
+
+    private void resizeEmailTable(int capacity) {
+        int[] oldIds = emailIds;
+        int[] oldHashes = emailHashes;
+        emailIds = new int[capacity];
+        emailHashes = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != 0) {
+                int index = oldHashes[i] & mask;
+                while (emailIds[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                emailIds[index] = oldIds[i];
+                emailHashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private static String decode(ByteBuffer slab, int offset, int length) {
+        byte[] bytes = new byte[length];
+        slab.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String email) {
+        int h = email.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int slabIndex(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+}
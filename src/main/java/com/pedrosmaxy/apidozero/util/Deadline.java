@@ -0,0 +1,84 @@
+package com.pedrosmaxy.apidozero.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which a request must be answered. The deadline of the work running on a
+ * thread is available through {@link #current()}, so blocking code deep in a DAO can bound
+ * its own waits without every method taking an extra parameter.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private static final ThreadLocal<Deadline> CURRENT = ThreadLocal.withInitial(() -> NONE);
+
+    private final long expiresAtNanos;
+    private final boolean set;
+
+    private Deadline(long expiresAtNanos, boolean set) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.set = set;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /** Runs {@code call} with {@code deadline} as the current deadline of this thread. */
+    public static <T> T callWithin(Deadline deadline, Supplier<T> call) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return call.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public boolean isSet() {
+        return set;
+    }
+
+    public boolean isExpired() {
+        return set && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /** Milliseconds left, at least 0; {@link Long#MAX_VALUE} when no deadline is set. */
+    public long remainingMillis() {
+        if (!set) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    /** @throws DeadlineExceededException if the deadline has passed */
+    public void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /** Acquires {@code lock}, giving up with {@link DeadlineExceededException} when the deadline passes. */
+    public void lock(Lock lock) {
+        if (!set) {
+            lock.lock();
+            return;
+        }
+        try {
+            if (!lock.tryLock(remainingMillis(), TimeUnit.MILLISECONDS)) {
+                throw new DeadlineExceededException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException();
+        }
+    }
+}
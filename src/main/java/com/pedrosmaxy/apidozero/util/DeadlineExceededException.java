@@ -0,0 +1,15 @@
+package com.pedrosmaxy.apidozero.util;
+
+/** Thrown when work is abandoned because its request {@link Deadline} has passed. */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException() {
+        super("Request deadline exceeded");
+    }
+
+    public DeadlineExceededException(Throwable cause) {
+        super("Request deadline exceeded", cause);
+    }
+}
@@ -0,0 +1,144 @@
+package com.pedrosmaxy.apidozero.util;
+
+/**
+ * Open-addressing hash map from {@code int} to non-negative {@code long} values, without
+ * boxing either side. Same probing and deletion scheme as {@link IntObjectHashMap}.
+ * Not thread-safe.
+ */
+public class IntLongHashMap {
+
+    public static final long MISSING = -1L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private long[] values; // stored as value + 1 so that 0 marks a free slot
+    private int size;
+    private int resizeAt;
+
+    public IntLongHashMap() {
+        this(16);
+    }
+
+    public IntLongHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1);
+    }
+
+    public long get(int key) {
+        int mask = values.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != 0) {
+            if (keys[index] == key) {
+                return values[index] - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    public long put(int key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+
+        int mask = values.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != 0) {
+            if (keys[index] == key) {
+                long previous = values[index] - 1;
+                values[index] = value + 1;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value + 1;
+        if (++size >= resizeAt) {
+            allocate(values.length << 1);
+        }
+        return MISSING;
+    }
+
+    public long remove(int key) {
+        int mask = values.length - 1;
+        int index = mix(key) & mask;
+        while (values[index] != 0) {
+            if (keys[index] == key) {
+                long previous = values[index] - 1;
+                shiftBack(index, mask);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Calls {@code action} for every entry, in no particular order. */
+    public void forEach(Entry action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                action.accept(keys[i], values[i] - 1);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(int key, long value);
+    }
+
+    private void shiftBack(int gap, int mask) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == 0) {
+                break;
+            }
+            int home = mix(keys[index]) & mask;
+            boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        values[gap] = 0;
+        keys[gap] = 0;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+
+        keys = new int[capacity];
+        values = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        int mask = capacity - 1;
+        if (oldValues != null) {
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int index = mix(oldKeys[i]) & mask;
+                    while (values[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
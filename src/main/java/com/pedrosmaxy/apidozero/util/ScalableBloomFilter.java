@@ -0,0 +1,123 @@
+package com.pedrosmaxy.apidozero.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bloom filter over strings that grows as values are added: once a stage holds its capacity a
+ * new one, twice as large and with a tighter false-positive rate, takes further additions, so
+ * the overall rate stays near the one requested however many values arrive. A negative answer
+ * is exact; a positive one only means "maybe". Values cannot be removed. Not thread-safe.
+ */
+public final class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final int initialCapacity;
+    private final double falsePositiveRate;
+    private final List<Stage> stages = new ArrayList<>();
+    private int size;
+
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid capacity or false positive rate");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        clear();
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        if (mightContain(hash)) {
+            return;
+        }
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.count >= stage.capacity) {
+            stage = new Stage(stage.capacity * GROWTH_FACTOR, stage.falsePositiveRate * TIGHTENING_RATIO);
+            stages.add(stage);
+        }
+        stage.add(hash);
+        size++;
+    }
+
+    /** {@code false} means the value was never added; {@code true} has to be confirmed by the caller. */
+    public boolean mightContain(String value) {
+        return mightContain(hash(value));
+    }
+
+    /** Number of distinct values added, give or take the ones that were false positives. */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        stages.clear();
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+        size = 0;
+    }
+
+    private boolean mightContain(long hash) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 chars, finished with the MurmurHash3 mixer. */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static final class Stage {
+        final int capacity;
+        final double falsePositiveRate;
+        final long[] words;
+        final long bits;
+        final int hashes;
+        int count;
+
+        Stage(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new long[(int) Math.max(1, (optimalBits + 63) / 64)];
+            this.bits = words.length * 64L;
+            this.hashes = (int) Math.max(1, Math.round((double) bits / capacity * Math.log(2)));
+        }
+
+        // Double hashing: the i-th probe is h1 + i * h2, both halves of the 64-bit hash.
+        void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+            count++;
+        }
+
+        boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
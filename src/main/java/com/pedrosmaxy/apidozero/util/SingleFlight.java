@@ -0,0 +1,44 @@
+package com.pedrosmaxy.apidozero.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent asynchronous calls for the same key: while a call is in flight, every
+ * other caller for that key receives the same future instead of starting its own. Nothing is
+ * cached once the call completes, so the next caller always starts a fresh call.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        var placeholder = new CompletableFuture<V>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+
+        result.whenComplete((value, error) -> {
+            inFlight.remove(key, placeholder);
+            if (error != null) {
+                placeholder.completeExceptionally(error);
+            } else {
+                placeholder.complete(value);
+            }
+        });
+        return placeholder;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -2,19 +2,27 @@ package com.pedrosmaxy.apidozero;
 
 import com.pedrosmaxy.apidozero.controllers.UserController;
 import com.pedrosmaxy.apidozero.dao.impl.UserDAOSqliteImpl;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOTextFileImpl;
+import com.pedrosmaxy.apidozero.entities.User;
 import com.sun.net.httpserver.HttpServer;
 import org.junit.After;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
 import java.net.*;
+import java.time.Duration;
 
 import static org.junit.Assert.*;
 
 public class MainTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private HttpServer server;
 
     @Before
@@ -44,6 +52,17 @@ public class MainTest {
         }
     }
 
+    @Test
+    public void closingANodeWritesWhatItsStorageStillHolds() throws IOException {
+        String file = folder.newFile("base.txt").getAbsolutePath();
+        Main.Node node = Main.start(0, new UserDAOTextFileImpl(file, Duration.ofHours(1), 1_000), null);
+        node.userDAO().create(new User("John Doe", "john@example.com"));
+
+        node.close();
+
+        assertEquals("John Doe", new UserDAOTextFileImpl(file).findById(1).orElseThrow().getName());
+    }
+
     @Test
     public void serverStartsSuccessfully() {
         assertNotNull(server);
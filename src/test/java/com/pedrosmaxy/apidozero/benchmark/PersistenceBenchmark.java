@@ -0,0 +1,89 @@
+package com.pedrosmaxy.apidozero.benchmark;
+
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOMemoryImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.persistence.FsyncPolicy;
+import com.pedrosmaxy.apidozero.persistence.UserStorePersistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures write throughput of the in-memory store under each fsync policy, and the time
+ * to recover it from a snapshot plus log tail. Not a unit test; run it manually:
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes com.pedrosmaxy.apidozero.benchmark.PersistenceBenchmark [writes] [threads]
+ * </pre>
+ */
+public class PersistenceBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int writes = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        measure(null, FsyncPolicy.INTERVAL, writes, threads); // warm-up
+        System.out.printf("%-16s %12s %14s%n", "policy", "writes/s", "recovery ms");
+        measure("in-memory only", null, writes, threads);
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            measure(policy.name(), policy, writes, threads);
+        }
+    }
+
+    private static void measure(String label, FsyncPolicy policy, int writes, int threads) throws Exception {
+        Path directory = Files.createTempDirectory("user-wal-bench");
+        try {
+            var store = policy == null
+                    ? new UserDAOMemoryImpl()
+                    : new UserDAOMemoryImpl(new UserStorePersistence(directory, policy));
+
+            long start = System.nanoTime();
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(Thread.ofPlatform().start(() -> {
+                    for (int i = thread; i < writes; i += threads) {
+                        store.create(new User("Benchmark User " + i, "user" + i + "@example.com"));
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            String recovery = "-";
+            if (policy != null) {
+                // half of the data goes into the snapshot, the rest stays in the log tail
+                store.snapshot();
+                List<User> existing = store.getAll();
+                for (User user : existing.subList(0, existing.size() / 2)) {
+                    store.change(new User("Renamed " + user.getId(), user.getEmail()), user.getId());
+                }
+                store.close();
+
+                long recoveryStart = System.nanoTime();
+                var recovered = new UserDAOMemoryImpl(new UserStorePersistence(directory, policy));
+                recovery = String.format("%.1f", (System.nanoTime() - recoveryStart) / 1e6);
+                if (recovered.getAll().size() != writes) {
+                    throw new IllegalStateException("Recovered store is incomplete");
+                }
+            }
+
+            if (label != null) {
+                System.out.printf("%-16s %12.0f %14s%n", label, writes / seconds, recovery);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException ignored) {
+                // best effort cleanup of the temporary directory
+            }
+        }
+    }
+}
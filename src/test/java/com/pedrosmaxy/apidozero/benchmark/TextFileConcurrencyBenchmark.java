@@ -0,0 +1,73 @@
+package com.pedrosmaxy.apidozero.benchmark;
+
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOTextFileImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures read throughput of the text-file store as reader threads are added, with one
+ * writer running alongside. Not a unit test; run it manually:
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes com.pedrosmaxy.apidozero.benchmark.TextFileConcurrencyBenchmark [users] [seconds]
+ * </pre>
+ */
+public class TextFileConcurrencyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path file = Files.createTempFile("users-bench", ".txt");
+        try {
+            var store = new UserDAOTextFileImpl(file.toString());
+            List<User> seed = new ArrayList<>(users);
+            for (int i = 1; i <= users; i++) {
+                User user = new User("User " + i, "user" + i + "@example.com");
+                user.setId(i);
+                seed.add(user);
+            }
+            store.saveAll(seed);
+
+            System.out.printf("%-8s %12s %12s%n", "readers", "reads/s", "writes/s");
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int readers = 1; readers <= cores * 2; readers *= 2) {
+                measure(store, readers, seconds);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void measure(UserDAOTextFileImpl store, int readers, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        var reads = new AtomicLong();
+        var writes = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    store.getAll();
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        threads.add(Thread.ofPlatform().start(() -> {
+            while (System.nanoTime() < deadline) {
+                store.change(new User("Changed " + writes.get(), "user1@example.com"), 1);
+                writes.incrementAndGet();
+            }
+        }));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("%-8d %12.0f %12.0f%n", readers, reads.get() / (double) seconds, writes.get() / (double) seconds);
+    }
+}
@@ -0,0 +1,205 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOMemoryImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ClusterIntegrationTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\": (\\d+)");
+    private static final Pattern NAME = Pattern.compile("\"name\": \"([^\"]*)\"");
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Main.Node> nodes = new ArrayList<>();
+    private final List<UserDAOMemoryImpl> stores = new ArrayList<>();
+    private List<String> urls;
+
+    @Before
+    public void setup() throws IOException {
+        urls = List.of(freeUrl(), freeUrl(), freeUrl());
+        for (String url : urls) {
+            var store = new UserDAOMemoryImpl();
+            stores.add(store);
+            nodes.add(startNode(url, store, urls));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        nodes.forEach(Main.Node::close);
+        client.close();
+    }
+
+    @Test
+    public void anyNodeServesEveryUserAndListsTheWholeCluster() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            HttpResponse<String> created = send("POST", urls.get(i % 3) + "/api/user",
+                    "{\"name\": \"User " + (char) ('A' + i) + "\", \"email\": \"user" + i + "@example.com\"}");
+            assertEquals(201, created.statusCode());
+            ids.add(firstInt(ID, created.body()));
+        }
+
+        for (int i = 0; i < stores.size(); i++) {
+            Cluster cluster = nodes.get(i).cluster();
+            assertFalse(stores.get(i).getAll().isEmpty());
+            assertTrue(stores.get(i).getAll().stream().allMatch(user -> cluster.owns(user.getId())));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            HttpResponse<String> found = send("GET", urls.get((i + 1) % 3) + "/api/user/" + ids.get(i), null);
+            assertEquals(200, found.statusCode());
+            assertEquals("User " + (char) ('A' + i), firstMatch(NAME, found.body()));
+        }
+
+        HttpResponse<String> patched = send("PATCH", urls.get(2) + "/api/user/" + ids.get(0), "{\"name\": \"User Z\"}");
+        assertEquals(200, patched.statusCode());
+
+        HttpResponse<String> listed = send("GET", urls.get(1) + "/api/user?sort=name&order=desc", null);
+        assertEquals(200, listed.statusCode());
+        List<String> names = allMatches(NAME, listed.body());
+        assertEquals(12, names.size());
+        assertEquals("User Z", names.get(0));
+        assertEquals("User B", names.get(11));
+    }
+
+    @Test
+    public void rebalanceMovesUsersToANewNode() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            assertEquals(201, send("POST", urls.get(i % 3) + "/api/user",
+                    "{\"name\": \"User " + i + "\", \"email\": \"user" + i + "@example.com\"}").statusCode());
+        }
+        int versionBefore = stores.get(0).getAll().get(0).getVersion();
+
+        List<String> grown = new ArrayList<>(urls);
+        grown.add(freeUrl());
+        nodes.forEach(Main.Node::close);
+        nodes.clear();
+        stores.add(new UserDAOMemoryImpl());
+        for (int i = 0; i < grown.size(); i++) {
+            nodes.add(startNode(grown.get(i), stores.get(i), grown));
+        }
+
+        int moved = 0;
+        for (String url : urls) {
+            HttpResponse<String> rebalanced = send("POST", url + "/api/cluster/rebalance", null);
+            assertEquals(200, rebalanced.statusCode());
+            moved += firstInt(Pattern.compile("\"moved\": (\\d+)"), rebalanced.body());
+        }
+
+        assertTrue(moved > 0);
+        assertEquals(moved, stores.get(3).getAll().size());
+        assertEquals(30, stores.stream().mapToInt(store -> store.getAll().size()).sum());
+        for (User user : stores.get(3).getAll()) {
+            assertTrue(nodes.get(3).cluster().owns(user.getId()));
+        }
+        assertEquals(versionBefore, stores.get(0).getAll().get(0).getVersion());
+        assertEquals(30, allMatches(NAME, send("GET", urls.get(0) + "/api/user", null).body()).size());
+    }
+
+    @Test
+    public void importOnlyAcceptsOwnedUsersFromOtherMembers() throws Exception {
+        Cluster cluster = nodes.get(0).cluster();
+        int owned = 1;
+        while (!cluster.owns(owned)) {
+            owned++;
+        }
+        int foreign = 1;
+        while (cluster.owns(foreign)) {
+            foreign++;
+        }
+
+        assertEquals(403, importUsers(null, user(owned)).statusCode());
+        assertEquals(403, importUsers(urls.get(0), user(owned)).statusCode());
+        assertEquals(400, importUsers(urls.get(1), user(foreign)).statusCode());
+        assertEquals(400, importUsers(urls.get(1), user(owned), new User("", "blank@example.com")).statusCode());
+        assertTrue(stores.get(0).getAll().isEmpty());
+
+        assertEquals(204, importUsers(urls.get(1), user(owned)).statusCode());
+        assertEquals(3, stores.get(0).findById(owned).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void requestsFromOtherHostsAreNotFromMembers() throws Exception {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRemoteAddress()).thenReturn(new InetSocketAddress(InetAddress.getByName("203.0.113.7"), 40000));
+        assertFalse(nodes.get(0).cluster().isFromMember(exchange));
+
+        when(exchange.getRemoteAddress()).thenReturn(new InetSocketAddress(InetAddress.getLoopbackAddress(), 40000));
+        assertTrue(nodes.get(0).cluster().isFromMember(exchange));
+    }
+
+    private static User user(int id) {
+        var user = new User("User " + id, "user" + id + "@example.com");
+        user.setId(id);
+        user.setVersion(3);
+        return user;
+    }
+
+    private HttpResponse<String> importUsers(String sender, User... users) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(urls.get(0) + "/api/cluster/import"))
+                .header("Content-Type", UserCbor.CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(UserCbor.encodeListWithVersions(List.of(users))));
+        if (sender != null) {
+            request.header(Cluster.HOP_HEADER, sender);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Main.Node startNode(String url, UserDAOMemoryImpl store, List<String> members) throws IOException {
+        return Main.start(URI.create(url).getPort(), store, null, new Cluster(members, url));
+    }
+
+    private HttpResponse<String> send(String method, String url, String body) throws Exception {
+        var request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String freeUrl() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return "http://localhost:" + socket.getLocalPort();
+        }
+    }
+
+    private static int firstInt(Pattern pattern, String body) {
+        return Integer.parseInt(firstMatch(pattern, body));
+    }
+
+    private static String firstMatch(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        assertTrue(body, matcher.find());
+        return matcher.group(1);
+    }
+
+    private static List<String> allMatches(Pattern pattern, String body) {
+        List<String> values = new ArrayList<>();
+        Matcher matcher = pattern.matcher(body);
+        while (matcher.find()) {
+            values.add(matcher.group(1));
+        }
+        return values;
+    }
+}
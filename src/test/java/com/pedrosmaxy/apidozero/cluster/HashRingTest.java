@@ -0,0 +1,46 @@
+package com.pedrosmaxy.apidozero.cluster;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HashRingTest {
+
+    private static final List<String> NODES = List.of("http://a:3000", "http://b:3000", "http://c:3000");
+
+    @Test
+    public void spreadsIdsEvenlyAndAgreesRegardlessOfMemberOrder() {
+        var ring = new HashRing(NODES);
+        var reversed = new HashRing(NODES.reversed());
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int id = 1; id <= 30_000; id++) {
+            assertEquals(ring.owner(id), reversed.owner(id));
+            counts.merge(ring.owner(id), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("unbalanced: " + counts, count > 8_000 && count < 12_000);
+        }
+    }
+
+    @Test
+    public void addingANodeOnlyMovesIdsToIt() {
+        var before = new HashRing(NODES);
+        var after = new HashRing(List.of("http://a:3000", "http://b:3000", "http://c:3000", "http://d:3000"));
+
+        int moved = 0;
+        for (int id = 1; id <= 30_000; id++) {
+            if (!before.owner(id).equals(after.owner(id))) {
+                assertEquals("http://d:3000", after.owner(id));
+                moved++;
+            }
+        }
+        assertTrue("moved " + moved, moved > 5_000 && moved < 10_000);
+    }
+}
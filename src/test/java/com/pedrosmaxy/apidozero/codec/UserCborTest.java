@@ -0,0 +1,86 @@
+package com.pedrosmaxy.apidozero.codec;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserCborTest {
+
+    @Test
+    public void encodesUserAsCborMap() {
+        byte[] encoded = UserCbor.encode(createUser(1, "Jo", "j@x"));
+
+        byte[] expected = {
+                (byte) 0xa3,
+                0x62, 'i', 'd', 0x01,
+                0x64, 'n', 'a', 'm', 'e', 0x62, 'J', 'o',
+                0x65, 'e', 'm', 'a', 'i', 'l', 0x63, 'j', '@', 'x'
+        };
+        assertArrayEquals(expected, encoded);
+    }
+
+    @Test
+    public void roundTripsUsersAndLists() {
+        User user = createUser(70_000, "José da Silva", "jose@example.com");
+        assertEquals(user, UserCbor.decode(UserCbor.encode(user)));
+
+        List<User> users = List.of(user, createUser(2, "Jane", "jane@example.com"));
+        assertEquals(users, UserCbor.decodeList(UserCbor.encodeList(users)));
+    }
+
+    @Test
+    public void decodingIgnoresUnknownKeysAndMissingId() {
+        byte[] payload = {
+                (byte) 0xa3,
+                0x64, 'n', 'a', 'm', 'e', 0x62, 'J', 'o',
+                0x63, 'a', 'g', 'e', 0x18, 0x2a,
+                0x65, 'e', 'm', 'a', 'i', 'l', 0x63, 'j', '@', 'x'
+        };
+
+        User user = UserCbor.decode(payload);
+
+        assertNull(user.getId());
+        assertEquals("Jo", user.getName());
+        assertEquals("j@x", user.getEmail());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedPayloadIsRejected() {
+        byte[] encoded = UserCbor.encode(createUser(1, "John Doe", "john@example.com"));
+        UserCbor.decode(Arrays.copyOf(encoded, encoded.length - 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deeplyNestedUnknownValueIsRejected() {
+        byte[] nested = new byte[60_000];
+        nested[0] = (byte) 0xa1;
+        nested[1] = 0x61;
+        nested[2] = 'x';
+        Arrays.fill(nested, 3, nested.length - 1, (byte) 0x81);
+        UserCbor.decode(nested);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void listCountLargerThanThePayloadIsRejected() {
+        UserCbor.decodeList(new byte[]{(byte) 0x9b, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0});
+    }
+
+    @Test
+    public void cborIsSmallerThanJson() {
+        User user = createUser(123, "John Doe", "john@example.com");
+        String json = "{\"id\": 123, \"name\": \"John Doe\", \"email\": \"john@example.com\"}";
+
+        assertTrue(UserCbor.encode(user).length < json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private User createUser(int id, String name, String email) {
+        User user = new User(name, email);
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,102 @@
+package com.pedrosmaxy.apidozero.controllers;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    private final AtomicLong version = new AtomicLong();
+    private final ResponseCache cache = new ResponseCache(version::get, 2);
+
+    @Test
+    public void entriesAreServedOnlyForTheVersionTheyWereBuiltFrom() {
+        cache.put("users", version.get(), "application/json", bytes("[]"));
+        assertNotNull(cache.get("users", version.get()));
+
+        version.incrementAndGet();
+        assertNull(cache.get("users", version.get()));
+    }
+
+    @Test
+    public void olderBuildsDoNotReplaceNewerEntries() {
+        cache.put("users", 2, "application/json", bytes("new"));
+        cache.put("users", 1, "application/json", bytes("old"));
+
+        assertEquals("new", new String(cache.get("users", 2).body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void staleEntriesAreEvictedWhenFull() {
+        cache.put("user/1", 0, "application/json", bytes("a"));
+        cache.put("user/2", 0, "application/json", bytes("b"));
+        version.incrementAndGet();
+
+        cache.put("user/3", 1, "application/json", bytes("c"));
+
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("user/3", 1));
+    }
+
+    @Test
+    public void listingsBeyondTheByteBudgetAreNotCached() {
+        var bounded = new ResponseCache(version::get, 100, 4);
+        bounded.put("users?a", 0, "application/json", bytes("abc"));
+        bounded.put("users?b", 0, "application/json", bytes("abc"));
+
+        assertNotNull(bounded.get("users?a", 0));
+        assertNull(bounded.get("users?b", 0));
+        assertEquals(3, bounded.listingBytes());
+
+        version.incrementAndGet();
+        bounded.put("users?b", 1, "application/json", bytes("abcd"));
+        assertNotNull(bounded.get("users?b", 1));
+        assertEquals(4, bounded.listingBytes());
+    }
+
+    @Test
+    public void userBodiesSurviveOtherWritesUntilInvalidated() {
+        cache.putRecord("user/1", cache.stamp("user/1"), 3, "application/json", bytes("a"), "\"3\"");
+        version.incrementAndGet();
+        cache.invalidate("user/2");
+        assertEquals(3, cache.getRecord("user/1").version());
+
+        cache.invalidate("user/1");
+        assertNull(cache.getRecord("user/1"));
+    }
+
+    @Test
+    public void readsThatStartedBeforeAnInvalidationAreNotCached() {
+        long before = cache.stamp("user/1");
+        cache.invalidate("user/1");
+
+        cache.putRecord("user/1", before, 3, "application/json", bytes("stale"), "\"3\"");
+        assertNull(cache.getRecord("user/1"));
+
+        cache.putRecord("user/1", cache.stamp("user/1"), 4, "application/json", bytes("fresh"), "\"4\"");
+        cache.putRecord("user/1", cache.stamp("user/1"), 3, "application/json", bytes("stale"), "\"3\"");
+        assertEquals("fresh", new String(cache.getRecord("user/1").body(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void gzippedBodyRoundTrips() throws IOException {
+        byte[] body = bytes("x".repeat(ResponseCache.GZIP_MIN_BYTES * 2));
+        ResponseCache.Entry entry = cache.put("users", 0, "application/json", body);
+
+        assertTrue(entry.worthCompressing());
+        assertTrue(entry.gzipped().length < body.length);
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(entry.gzipped()))) {
+            assertArrayEquals(body, gzip.readAllBytes());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
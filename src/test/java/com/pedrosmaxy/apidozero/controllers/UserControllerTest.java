@@ -1,7 +1,15 @@
 package com.pedrosmaxy.apidozero.controllers;
 
+import com.pedrosmaxy.apidozero.codec.UserCbor;
+import com.pedrosmaxy.apidozero.dao.AsyncUserDAO;
 import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.dao.UserStats;
+import com.pedrosmaxy.apidozero.dao.VersionConflictException;
+import com.pedrosmaxy.apidozero.dao.impl.AsyncUserDAOAdapter;
 import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import org.junit.Before;
@@ -15,9 +23,14 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -71,6 +84,56 @@ public class UserControllerTest {
         assertTrue(response.contains("jane@example.com"));
     }
 
+    @Test
+    public void listQueryParametersArePassedToTheDao() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user?sort=name&order=desc&nameStartsWith=Jo&emailDomain=example.com"));
+        var query = new UserQuery(UserQuery.Sort.NAME, true, "Jo", "example.com");
+        when(userDAO.find(query)).thenReturn(List.of(createUser(1, "John Doe", "john@example.com")));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertTrue(responseStream.toString().contains("John Doe"));
+        verify(userDAO, never()).getAll();
+    }
+
+    @Test
+    public void unknownSortReturns400() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user?sort=age"));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(400), anyLong());
+        verify(userDAO, never()).find(any(UserQuery.class));
+    }
+
+    @Test
+    public void countIsServedFromStatsWithoutListingUsers() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/count"));
+        when(userDAO.stats()).thenReturn(new UserStats(42, 50));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertEquals("{\"count\": 42}", responseStream.toString());
+        verify(userDAO, never()).getAll();
+    }
+
+    @Test
+    public void statsReportCountAndLastId() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/stats"));
+        when(userDAO.stats()).thenReturn(new UserStats(42, 50));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertEquals("{\"count\": 42, \"lastId\": 50}", responseStream.toString());
+    }
+
     @Test
     public void getUserByIdReturnsUser() throws IOException, URISyntaxException {
         when(exchange.getRequestMethod()).thenReturn("GET");
@@ -232,6 +295,355 @@ public class UserControllerTest {
         assertTrue(responseStream.toString().contains("Endpoint not found"));
     }
 
+    @Test
+    public void searchUsersReturnsMatches() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/search?q=joh&limit=5"));
+
+        when(userDAO.search("joh", 5)).thenReturn(List.of(createUser(1, "John Doe", "john@example.com")));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertTrue(responseStream.toString().contains("John Doe"));
+    }
+
+    @Test
+    public void searchUsersReturns400WithoutQuery() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/search"));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(400), anyLong());
+        verify(userDAO, never()).search(anyString(), anyInt());
+    }
+
+    @Test
+    public void saturatedDaoExecutorReturns503() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+
+        AsyncUserDAO asyncUserDAO = mock(AsyncUserDAO.class);
+        when(asyncUserDAO.getAll()).thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException()));
+
+        new UserController(asyncUserDAO, null).handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(503), anyLong());
+        verify(exchange).close();
+    }
+
+    @Test
+    public void concurrentGetsForTheSameUserShareOneLookup() throws IOException, URISyntaxException {
+        AsyncUserDAO asyncUserDAO = mock(AsyncUserDAO.class);
+        CompletableFuture<Optional<User>> lookup = new CompletableFuture<>();
+        when(asyncUserDAO.findById(1)).thenReturn(lookup);
+        var asyncController = new UserController(asyncUserDAO, null);
+
+        HttpExchange other = mock(HttpExchange.class);
+        var otherResponse = new ByteArrayOutputStream();
+        for (HttpExchange each : List.of(exchange, other)) {
+            when(each.getRequestMethod()).thenReturn("GET");
+            when(each.getRequestURI()).thenReturn(new URI("/api/user/1"));
+            when(each.getRemoteAddress()).thenReturn(new InetSocketAddress("localhost", 8080));
+        }
+        when(other.getResponseHeaders()).thenReturn(new Headers());
+        when(other.getResponseBody()).thenReturn(otherResponse);
+
+        asyncController.handle(exchange);
+        asyncController.handle(other);
+        lookup.complete(Optional.of(createUser(1, "John Doe", "john@example.com")));
+
+        verify(asyncUserDAO, times(1)).findById(1);
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        verify(other).sendResponseHeaders(eq(200), anyLong());
+        assertEquals(responseStream.toString(), otherResponse.toString());
+    }
+
+    @Test
+    public void repeatedListReadsAreServedFromTheResponseCacheUntilAWrite() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+        when(userDAO.getAll()).thenReturn(List.of(createUser(1, "John Doe", "john@example.com")));
+        when(userDAO.findById(1)).thenReturn(Optional.of(createUser(1, "John Doe", "john@example.com")));
+
+        controller.handle(exchange);
+        controller.handle(exchange);
+        verify(userDAO, times(1)).getAll();
+
+        HttpExchange delete = mock(HttpExchange.class);
+        when(delete.getRequestMethod()).thenReturn("DELETE");
+        when(delete.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        when(delete.getRemoteAddress()).thenReturn(new InetSocketAddress("localhost", 8080));
+        when(delete.getResponseHeaders()).thenReturn(new Headers());
+        when(delete.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+        controller.handle(delete);
+
+        controller.handle(exchange);
+        verify(userDAO, times(2)).getAll();
+    }
+
+    @Test
+    public void cachedUsersAreOnlyDroppedByWritesToThatUser() throws IOException, URISyntaxException {
+        var changeFeed = new UserChangeFeed();
+        var feedController = new UserController(userDAO, changeFeed);
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        when(userDAO.findById(1)).thenReturn(Optional.of(createUser(1, "John Doe", "john@example.com")));
+
+        feedController.handle(exchange);
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, 2, createUser(2, "Jane Doe", "jane@example.com"));
+        feedController.handle(exchange);
+        verify(userDAO, times(1)).findById(1);
+
+        changeFeed.publish(UserChangeEvent.Type.UPDATED, 1, createUser(1, "John Roe", "john@example.com"));
+        feedController.handle(exchange);
+        verify(userDAO, times(2)).findById(1);
+    }
+
+    @Test
+    public void getUserByIdNegotiatesCbor() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("Accept", "application/cbor, application/json;q=0.5");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        User user = createUser(1, "John Doe", "john@example.com");
+        when(userDAO.findById(1)).thenReturn(Optional.of(user));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertEquals(UserCbor.CONTENT_TYPE, headers.getFirst("Content-Type"));
+        assertEquals(user, UserCbor.decode(responseStream.toByteArray()));
+    }
+
+    @Test
+    public void createUserAcceptsCborBody() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("Content-Type", UserCbor.CONTENT_TYPE);
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getRequestBody()).thenReturn(
+                new ByteArrayInputStream(UserCbor.encode(new User("John Doe", "john@example.com"))));
+        when(userDAO.create(any(User.class))).thenAnswer(invocation -> {
+            User created = invocation.getArgument(0);
+            created.setId(1);
+            return created;
+        });
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(201), anyLong());
+        assertEquals("application/json", headers.getFirst("Content-Type"));
+        assertTrue(responseStream.toString().contains("John Doe"));
+    }
+
+    @Test
+    public void declaredOversizedBodyReturns413WithoutReading() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("Content-Length", Integer.toString(RequestBodyReader.DEFAULT_MAX_BYTES + 1));
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        var body = new ByteArrayInputStream(new byte[RequestBodyReader.DEFAULT_MAX_BYTES + 1]);
+        when(exchange.getRequestBody()).thenReturn(body);
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(413), anyLong());
+        assertEquals(RequestBodyReader.DEFAULT_MAX_BYTES + 1, body.available());
+        verify(userDAO, never()).create(any(User.class));
+    }
+
+    @Test
+    public void oversizedBodyWithoutContentLengthReturns413() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("PUT");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        String padding = " ".repeat(RequestBodyReader.DEFAULT_MAX_BYTES);
+        String requestBody = "{\"name\":\"John Doe\"," + padding + "\"email\":\"john@example.com\"}";
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(requestBody.getBytes()));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(413), anyLong());
+        assertTrue(responseStream.toString().contains("Request body too large"));
+        verify(userDAO, never()).change(any(User.class), anyInt());
+    }
+
+    @Test
+    public void malformedCborBodyReturns400() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("Content-Type", UserCbor.CONTENT_TYPE);
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(new byte[]{(byte) 0xa3, 0x62}));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(400), anyLong());
+        verify(userDAO, never()).create(any(User.class));
+    }
+
+    @Test
+    public void getUserByIdSendsVersionAsETag() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        User user = createUser(1, "John Doe", "john@example.com");
+        user.setVersion(3);
+        when(userDAO.findById(1)).thenReturn(Optional.of(user));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertEquals("\"3\"", headers.getFirst("ETag"));
+    }
+
+    @Test
+    public void updateWithStaleIfMatchReturns412() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("PUT");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("If-Match", "\"2\"");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getRequestBody()).thenReturn(
+                new ByteArrayInputStream("{\"name\":\"John\",\"email\":\"john@example.com\"}".getBytes()));
+        when(userDAO.findById(1)).thenReturn(Optional.of(createUser(1, "John Doe", "john@example.com")));
+        when(userDAO.change(any(User.class), eq(1), eq(2))).thenThrow(new VersionConflictException(1, 2, 3));
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(412), anyLong());
+        verify(userDAO, never()).change(any(User.class), eq(1));
+    }
+
+    @Test
+    public void deleteWithMatchingIfMatchPassesTheVersion() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("DELETE");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        var requestHeaders = new Headers();
+        requestHeaders.set("If-Match", "W/\"4\"");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(userDAO.findById(1)).thenReturn(Optional.of(createUser(1, "John Doe", "john@example.com")));
+
+        controller.handle(exchange);
+
+        verify(userDAO).delete(1, 4);
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+    }
+
+    @Test
+    public void patchUpdatesOnlyTheSuppliedFields() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("PATCH");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream("{\"name\":\"John Roe\"}".getBytes()));
+        User patched = createUser(1, "John Roe", "john@example.com");
+        patched.setVersion(2);
+        when(userDAO.patch(eq(1), any(User.class), eq(UserDAO.ANY_VERSION))).thenReturn(Optional.of(patched));
+
+        controller.handle(exchange);
+
+        verify(userDAO).patch(eq(1), argThat(changes -> "John Roe".equals(changes.getName()) && changes.getEmail() == null),
+                eq(UserDAO.ANY_VERSION));
+        verify(userDAO, never()).findById(anyInt());
+        verify(exchange).sendResponseHeaders(eq(200), anyLong());
+        assertEquals("\"2\"", headers.getFirst("ETag"));
+        assertTrue(responseStream.toString().contains("john@example.com"));
+    }
+
+    @Test
+    public void patchReturns404WhenUserNotFound() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("PATCH");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/999"));
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream("{\"email\":\"x@example.com\"}".getBytes()));
+        when(userDAO.patch(eq(999), any(User.class), anyInt())).thenReturn(Optional.empty());
+
+        controller.handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(404), anyLong());
+    }
+
+    @Test
+    public void slowLookupPastTheClientDeadlineReturns504() throws Exception {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user/1"));
+        var requestHeaders = new Headers();
+        requestHeaders.set(RequestDeadlines.TIMEOUT_HEADER, "50");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        var release = new CountDownLatch(1);
+        when(userDAO.findById(1)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(createUser(1, "John Doe", "john@example.com"));
+        });
+
+        var ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            var deadlines = new RequestDeadlines(Duration.ofSeconds(10), Duration.ofSeconds(5), Duration.ofSeconds(5));
+            new UserController(new AsyncUserDAOAdapter(userDAO, ioExecutor, Runnable::run), null, deadlines)
+                    .handle(exchange);
+
+            verify(exchange, timeout(2_000)).sendResponseHeaders(eq(504), anyLong());
+            verify(exchange, timeout(2_000)).close();
+        } finally {
+            release.countDown();
+            ioExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void aShortClientDeadlineDoesNotFailRequestsThatJoinedTheSameLookup() throws Exception {
+        var requestHeaders = new Headers();
+        requestHeaders.set(RequestDeadlines.TIMEOUT_HEADER, "50");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        HttpExchange patient = mock(HttpExchange.class);
+        when(patient.getRequestHeaders()).thenReturn(new Headers());
+        when(patient.getResponseHeaders()).thenReturn(new Headers());
+        when(patient.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+        for (HttpExchange each : List.of(exchange, patient)) {
+            when(each.getRequestMethod()).thenReturn("GET");
+            when(each.getRequestURI()).thenReturn(new URI("/api/user/1"));
+            when(each.getRemoteAddress()).thenReturn(new InetSocketAddress("localhost", 8080));
+        }
+        var release = new CountDownLatch(1);
+        when(userDAO.findById(1)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(createUser(1, "John Doe", "john@example.com"));
+        });
+
+        var ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            var deadlines = new RequestDeadlines(Duration.ofSeconds(10), Duration.ofSeconds(5), Duration.ofSeconds(5));
+            var deadlineController = new UserController(new AsyncUserDAOAdapter(userDAO, ioExecutor, Runnable::run), null, deadlines);
+            deadlineController.handle(exchange);
+            deadlineController.handle(patient);
+
+            verify(exchange, timeout(2_000)).sendResponseHeaders(eq(504), anyLong());
+            release.countDown();
+            verify(patient, timeout(2_000)).sendResponseHeaders(eq(200), anyLong());
+            verify(userDAO, times(1)).findById(1);
+        } finally {
+            release.countDown();
+            ioExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidTimeoutHeaderReturns400() throws IOException, URISyntaxException {
+        when(exchange.getRequestMethod()).thenReturn("GET");
+        when(exchange.getRequestURI()).thenReturn(new URI("/api/user"));
+        var requestHeaders = new Headers();
+        requestHeaders.set(RequestDeadlines.TIMEOUT_HEADER, "soon");
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+
+        new UserController(new AsyncUserDAOAdapter(userDAO), null, RequestDeadlines.fromSystemProperties())
+                .handle(exchange);
+
+        verify(exchange).sendResponseHeaders(eq(400), anyLong());
+        verify(userDAO, never()).getAll();
+    }
+
     private User createUser(int id, String name, String email) {
         User user = new User();
         user.setId(id);
@@ -0,0 +1,91 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class AsyncUserDAOAdapterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AsyncUserDAOAdapter asyncUserDAO;
+
+    @Before
+    public void setup() throws IOException {
+        UserDAO userDAO = new UserDAOTextFileImpl(folder.newFile("test_base.txt").getAbsolutePath());
+        asyncUserDAO = new AsyncUserDAOAdapter(userDAO,
+                AsyncUserDAOAdapter.boundedExecutor("test-dao", 2, 16),
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @After
+    public void tearDown() {
+        asyncUserDAO.close();
+    }
+
+    @Test
+    public void operationsCompleteAsynchronously() throws Exception {
+        User created = asyncUserDAO.create(new User("John Doe", "john@example.com"))
+                .get(5, TimeUnit.SECONDS);
+
+        var found = asyncUserDAO.findById(created.getId()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(found.isPresent());
+        assertEquals("John Doe", found.get().getName());
+        assertEquals(1, asyncUserDAO.getAll().get(5, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void daoFailuresCompleteTheFutureExceptionally() throws Exception {
+        try {
+            asyncUserDAO.delete(9999).get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException was not thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+    }
+
+    @Test
+    public void fullQueueRejectsInsteadOfBlocking() throws Exception {
+        var release = new CountDownLatch(1);
+        UserDAO slowDAO = mock(UserDAO.class);
+        when(slowDAO.findById(anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return java.util.Optional.empty();
+        });
+
+        try (var bounded = new AsyncUserDAOAdapter(slowDAO,
+                AsyncUserDAOAdapter.boundedExecutor("slow-dao", 1, 1), Runnable::run)) {
+            CompletableFuture<?> running = bounded.findById(1);
+            CompletableFuture<?> queued = bounded.findById(2);
+            CompletableFuture<?> rejected = bounded.findById(3);
+
+            try {
+                rejected.get(5, TimeUnit.SECONDS);
+                fail("Expected rejection was not raised");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            } finally {
+                release.countDown();
+            }
+
+            running.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
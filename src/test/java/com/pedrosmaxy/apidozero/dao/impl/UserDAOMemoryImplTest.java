@@ -0,0 +1,120 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserQuery;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class UserDAOMemoryImplTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UserDAOMemoryImpl userDAO;
+
+    @Before
+    public void setup() {
+        userDAO = new UserDAOMemoryImpl();
+    }
+
+    @Test
+    public void createAssignsIdsAndFindsUsers() {
+        User user = userDAO.create(new User("John Doe", "john@example.com"));
+
+        Optional<User> retrieved = userDAO.findById(user.getId());
+        assertTrue(retrieved.isPresent());
+        assertEquals(user, retrieved.get());
+        assertEquals(1, userDAO.getAll().size());
+    }
+
+    @Test
+    public void findFiltersAndSortsUsers() {
+        userDAO.create(new User("john Doe", "john@example.com"));
+        userDAO.create(new User("Jane Smith", "jane@Example.com"));
+        userDAO.create(new User("Joan Roe", "joan@sample.org"));
+
+        List<User> found = userDAO.find(new UserQuery(UserQuery.Sort.NAME, true, "jo", null));
+        assertEquals(List.of("john Doe", "Joan Roe"), found.stream().map(User::getName).toList());
+        assertEquals(found, userDAO.find(new UserQuery(UserQuery.Sort.NAME, true, "JO", null)));
+        assertEquals(new UserQuery(UserQuery.Sort.NAME, true, "jo", null), new UserQuery(UserQuery.Sort.NAME, true, "JO", null));
+
+        found = userDAO.find(new UserQuery(UserQuery.Sort.EMAIL, false, null, "example.com"));
+        assertEquals(List.of("jane@Example.com", "john@example.com"), found.stream().map(User::getEmail).toList());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void createUserWithDuplicateEmailThrowsException() {
+        userDAO.create(new User("User One", "duplicate@example.com"));
+        userDAO.create(new User("User Two", "duplicate@example.com"));
+    }
+
+    @Test
+    public void changeReleasesThePreviousEmail() {
+        User user = userDAO.create(new User("John Doe", "john@example.com"));
+        userDAO.change(new User("John Doe", "johnny@example.com"), user.getId());
+
+        User other = userDAO.create(new User("Other John", "john@example.com"));
+        assertNotEquals(user.getId(), other.getId());
+        assertEquals("johnny@example.com", userDAO.findById(user.getId()).get().getEmail());
+    }
+
+    @Test
+    public void returnedUsersAreDetachedCopies() {
+        User user = userDAO.create(new User("John Doe", "john@example.com"));
+        userDAO.findById(user.getId()).get().setName("Mutated");
+
+        assertEquals("John Doe", userDAO.findById(user.getId()).get().getName());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void deleteNonExistentUserThrowsException() {
+        userDAO.delete(9999);
+    }
+
+    @Test
+    public void snapshotRoundTripsThroughTheTextFormat() throws Exception {
+        File snapshot = new File(folder.getRoot(), "snapshot.txt");
+        try (var store = new UserDAOMemoryImpl(snapshot.getAbsolutePath())) {
+            store.create(new User("John Doe", "john@example.com"));
+            store.create(new User("Jane Smith", "jane@example.com"));
+        }
+
+        var reloaded = new UserDAOMemoryImpl(snapshot.getAbsolutePath());
+        List<User> users = reloaded.getAll();
+        assertEquals(2, users.size());
+        assertEquals(1, reloaded.search("smith", 10).size());
+        assertEquals(Integer.valueOf(3), reloaded.create(new User("Next", "next@example.com")).getId());
+
+        var textDAO = new UserDAOTextFileImpl(snapshot.getAbsolutePath());
+        assertEquals(users, textDAO.getAll());
+    }
+
+    @Test
+    public void concurrentReadsAndWritesStayConsistent() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            userDAO.create(new User("User " + i, "user" + i + "@example.com"));
+        }
+
+        Thread writer = new Thread(() -> {
+            for (int i = 100; i < 2_000; i++) {
+                userDAO.create(new User("User " + i, "user" + i + "@example.com"));
+            }
+        });
+        writer.start();
+
+        for (int round = 0; round < 20_000; round++) {
+            int id = 1 + round % 100;
+            assertEquals("user" + (id - 1) + "@example.com", userDAO.findById(id).get().getEmail());
+        }
+        writer.join();
+
+        assertEquals(2_000, userDAO.getAll().size());
+    }
+}
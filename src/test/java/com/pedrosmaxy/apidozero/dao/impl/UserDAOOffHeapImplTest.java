@@ -0,0 +1,86 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.storage.OffHeapUserRecords;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserDAOOffHeapImplTest {
+
+    private UserDAO userDAO;
+
+    @Before
+    public void setup() {
+        userDAO = new UserDAOOffHeapImpl();
+    }
+
+    @Test
+    public void crudRoundTrip() {
+        User user = userDAO.create(new User("John Doe", "john@example.com"));
+        assertEquals("John Doe", userDAO.findById(user.getId()).get().getName());
+
+        userDAO.change(new User("John Smith", "john@example.com"), user.getId());
+        assertEquals("John Smith", userDAO.findById(user.getId()).get().getName());
+
+        userDAO.delete(user.getId());
+        assertTrue(userDAO.findById(user.getId()).isEmpty());
+        assertTrue(userDAO.getAll().isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void createUserWithDuplicateEmailThrowsException() {
+        userDAO.create(new User("User One", "duplicate@example.com"));
+        userDAO.create(new User("User Two", "duplicate@example.com"));
+    }
+
+    @Test
+    public void getAllIsOrderedById() {
+        for (int i = 0; i < 100; i++) {
+            userDAO.create(new User("User " + i, "user" + i + "@example.com"));
+        }
+
+        List<User> users = userDAO.getAll();
+        assertEquals(100, users.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+        }
+    }
+
+    @Test
+    public void searchRanksPrefixMatchesFirst() {
+        userDAO.create(new User("Jane Johnson", "jane@example.com"));
+        userDAO.create(new User("John Doe", "john@example.com"));
+
+        List<User> users = userDAO.search("joh", 10);
+        assertEquals(2, users.size());
+        assertEquals("John Doe", users.get(0).getName());
+    }
+
+    @Test
+    public void searchFoldsCaseOfNonAsciiNames() {
+        userDAO.create(new User("ÉLIDA Souza", "elida@example.com"));
+        userDAO.create(new User("Bruno", "bruno@example.com"));
+
+        List<User> users = userDAO.search("éli", 10);
+        assertEquals(1, users.size());
+        assertEquals("ÉLIDA Souza", users.get(0).getName());
+        assertEquals(List.of("Bruno"), userDAO.search("BRU", 10).stream().map(User::getName).toList());
+    }
+
+    @Test
+    public void existingRecordsKeepTheirIds() {
+        var records = new OffHeapUserRecords();
+        records.put(1, "Ana", "ana@example.com");
+        records.put(7, "Bia", "bia@example.com");
+
+        var reopened = new UserDAOOffHeapImpl(records);
+        assertEquals(7, reopened.stats().lastId());
+        assertEquals(8, (int) reopened.create(new User("Caio", "caio@example.com")).getId());
+        assertEquals("Ana", reopened.findById(1).orElseThrow().getName());
+    }
+}
@@ -0,0 +1,96 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.ForwardingUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.entities.User;
+import com.pedrosmaxy.apidozero.events.UserChangeEvent;
+import com.pedrosmaxy.apidozero.events.UserChangeFeed;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UserDAOPublishingDecoratorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UserChangeFeed feed;
+    private UserDAO userDAO;
+
+    @Before
+    public void setup() throws IOException {
+        feed = new UserChangeFeed();
+        userDAO = new UserDAOPublishingDecorator(
+                new UserDAOTextFileImpl(folder.newFile("test_base.txt").getAbsolutePath()), feed);
+    }
+
+    @Test
+    public void mutationsArePublishedInOrder() throws InterruptedException {
+        try (var subscription = feed.subscribe(-1)) {
+            User user = userDAO.create(new User("John Doe", "john@example.com"));
+            userDAO.change(new User("John Smith", "john@example.com"), user.getId());
+            userDAO.delete(user.getId());
+
+            UserChangeEvent created = subscription.poll(1, TimeUnit.SECONDS);
+            UserChangeEvent updated = subscription.poll(1, TimeUnit.SECONDS);
+            UserChangeEvent deleted = subscription.poll(1, TimeUnit.SECONDS);
+
+            assertEquals(UserChangeEvent.Type.CREATED, created.type());
+            assertEquals(UserChangeEvent.Type.UPDATED, updated.type());
+            assertEquals("John Smith", updated.user().getName());
+            assertEquals(UserChangeEvent.Type.DELETED, deleted.type());
+            assertEquals((int) user.getId(), deleted.userId());
+            assertNull(deleted.user());
+        }
+    }
+
+    @Test
+    public void writesToDifferentUsersDoNotWaitForEachOther() throws Exception {
+        var stalled = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var memory = new UserDAOMemoryImpl();
+        User john = memory.create(new User("John Doe", "john@example.com"));
+        User jane = memory.create(new User("Jane Doe", "jane@example.com"));
+        var decorator = new UserDAOPublishingDecorator(new ForwardingUserDAO(memory) {
+            @Override
+            public Optional<User> change(User updateUser, int id, int expectedVersion) {
+                if (id == john.getId()) {
+                    stalled.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return super.change(updateUser, id, expectedVersion);
+            }
+        }, feed);
+
+        var slow = CompletableFuture.runAsync(() -> decorator.change(new User("John Roe", "john@example.com"), john.getId()));
+        assertTrue(stalled.await(1, TimeUnit.SECONDS));
+        decorator.change(new User("Jane Roe", "jane@example.com"), jane.getId());
+        assertEquals(1, feed.currentSequence());
+
+        release.countDown();
+        slow.get(1, TimeUnit.SECONDS);
+        assertEquals(2, feed.currentSequence());
+    }
+
+    @Test
+    public void failedMutationIsNotPublished() {
+        try {
+            userDAO.delete(9999);
+            fail("Expected RuntimeException was not thrown");
+        } catch (RuntimeException e) {
+            assertEquals(0, feed.currentSequence());
+        }
+    }
+}
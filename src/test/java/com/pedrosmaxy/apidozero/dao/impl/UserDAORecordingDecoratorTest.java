@@ -0,0 +1,63 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserDAORecordingDecoratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsOneEventPerCall() throws Exception {
+        var userDAO = new UserDAORecordingDecorator(new UserDAOMemoryImpl());
+        Path file = folder.getRoot().toPath().resolve("dao.jfr");
+
+        try (var recording = new Recording()) {
+            recording.enable("com.pedrosmaxy.apidozero.UserDaoCall").withoutThreshold();
+            recording.start();
+
+            User john = userDAO.create(new User("John Doe", "john@example.com"));
+            userDAO.create(new User("Jane Doe", "jane@example.com"));
+            userDAO.getAll();
+            userDAO.findById(999);
+            try {
+                userDAO.delete(999);
+            } catch (RuntimeException expected) {
+                // recorded as a failed call
+            }
+            userDAO.findById(john.getId());
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(6, events.size());
+
+        RecordedEvent getAll = find(events, "getAll");
+        assertEquals("UserDAOMemoryImpl", getAll.getString("backend"));
+        assertEquals(2, getAll.getInt("rows"));
+
+        RecordedEvent delete = find(events, "delete");
+        assertTrue(delete.getBoolean("failed"));
+        assertEquals(999, delete.getInt("userId"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String operation) {
+        return events.stream()
+                .filter(event -> operation.equals(event.getString("operation")))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -1,26 +1,39 @@
 package com.pedrosmaxy.apidozero.dao.impl;
 
+    import com.pedrosmaxy.apidozero.dao.UserQuery;
+    import com.pedrosmaxy.apidozero.dao.VersionConflictException;
     import com.pedrosmaxy.apidozero.entities.User;
+    import org.junit.After;
     import org.junit.Before;
+    import org.junit.Rule;
     import org.junit.Test;
+    import org.junit.rules.TemporaryFolder;
 
     import java.sql.Connection;
     import java.sql.DriverManager;
     import java.sql.SQLException;
+    import java.util.List;
 
     import static org.junit.Assert.*;
 
     public class UserDAOSqliteImplTest {
 
+        @Rule
+        public TemporaryFolder folder = new TemporaryFolder();
+
         private UserDAOSqliteImpl userDAO;
         // Use a named memory database with shared cache
         private static final String DB_URL = "jdbc:sqlite:file:memorydb?mode=memory&cache=shared";
 
+        // A shared in-memory database only lives while a connection to it is open.
+        private Connection keepAlive;
+
         @Before
         public void setUp() {
             // Initialize schema first to avoid table not found errors
-            try (Connection conn = DriverManager.getConnection(DB_URL)) {
-                conn.createStatement().execute(
+            try {
+                keepAlive = DriverManager.getConnection(DB_URL);
+                keepAlive.createStatement().execute(
                     "CREATE TABLE IF NOT EXISTS users (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
                     "name TEXT NOT NULL, " +
@@ -33,6 +46,11 @@ package com.pedrosmaxy.apidozero.dao.impl;
             userDAO = new UserDAOSqliteImpl(DB_URL);
         }
 
+        @After
+        public void tearDown() throws SQLException {
+            keepAlive.close();
+        }
+
         @Test
         public void deleteNonExistentUserThrowsException() {
             int nonExistentId = 9999;
@@ -81,4 +99,164 @@ package com.pedrosmaxy.apidozero.dao.impl;
                 // Just check that an exception was thrown
             }
         }
-    }
\ No newline at end of file
+    
+        @Test
+        public void searchUsesTheFullTextIndex() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("search.db").getAbsolutePath());
+            fileDAO.create(new User("John Doe", "john@example.com"));
+            User jane = fileDAO.create(new User("Jane Johnson", "jane@example.com"));
+            fileDAO.create(new User("Mary Smith", "mary@sample.org"));
+
+            List<User> users = fileDAO.search("john", 10);
+            assertEquals(2, users.size());
+            assertEquals("John Doe", users.get(0).getName());
+
+            assertEquals(1, fileDAO.search("ma", 10).size());
+
+            fileDAO.change(new User("Jane Roe", "jane@example.com"), jane.getId());
+            assertEquals(1, fileDAO.search("john", 10).size());
+
+            fileDAO.delete(jane.getId());
+            assertTrue(fileDAO.search("roe", 10).isEmpty());
+        }
+    
+        @Test
+        public void shortSearchesMatchLikeTheInMemoryIndex() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("short.db").getAbsolutePath());
+            var memoryDAO = new UserDAOMemoryImpl();
+            for (User user : List.of(new User("John Doe", "john@example.com"),
+                    new User("Jane Johnson", "jane@example.com"),
+                    new User("Mary Smith", "mary.smith@sample.org"),
+                    new User("Do", "do@sample.org"))) {
+                fileDAO.create(new User(user.getName(), user.getEmail()));
+                memoryDAO.create(user);
+            }
+
+            for (String query : List.of("do", "sa", "sm", "ja", "ex", "o")) {
+                assertEquals(query, ids(memoryDAO.search(query, 10)), ids(fileDAO.search(query, 10)));
+            }
+            assertEquals(List.of("Do", "John Doe"), fileDAO.search("do", 10).stream().map(User::getName).toList());
+        }
+
+        @Test
+        public void findFiltersAndSortsInSql() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("find.db").getAbsolutePath());
+            fileDAO.create(new User("john Doe", "john@example.com"));
+            fileDAO.create(new User("Jane Smith", "jane@Example.com"));
+            fileDAO.create(new User("Joan Roe", "joan@sample.org"));
+            fileDAO.create(new User("Jo_ker", "joker@example.com"));
+
+            List<User> found = fileDAO.find(new UserQuery(UserQuery.Sort.NAME, true, "jo", null));
+            assertEquals(List.of("john Doe", "Joan Roe", "Jo_ker"), found.stream().map(User::getName).toList());
+
+            found = fileDAO.find(new UserQuery(UserQuery.Sort.ID, false, "jo_", "EXAMPLE.com"));
+            assertEquals(List.of("Jo_ker"), found.stream().map(User::getName).toList());
+
+            found = fileDAO.find(new UserQuery(UserQuery.Sort.EMAIL, false, null, "example.com"));
+            assertEquals(List.of("jane@Example.com", "john@example.com", "joker@example.com"),
+                    found.stream().map(User::getEmail).toList());
+
+            fileDAO.create(new User("Émile Zola", "emile@example.com"));
+            assertTrue(fileDAO.find(new UserQuery(UserQuery.Sort.ID, false, "é", null)).isEmpty());
+            assertEquals(1, fileDAO.find(new UserQuery(UserQuery.Sort.ID, false, "É", null)).size());
+        }
+    
+        @Test
+        public void statsAreKeptByTriggersAndSeededForExistingDatabases() throws Exception {
+            String url = "jdbc:sqlite:" + folder.newFile("stats.db").getAbsolutePath();
+            var fileDAO = new UserDAOSqliteImpl(url);
+            User john = fileDAO.create(new User("John Doe", "john@example.com"));
+            User jane = fileDAO.create(new User("Jane Doe", "jane@example.com"));
+            fileDAO.delete(john.getId());
+            var mary = new User("Mary Smith", "mary@example.com");
+            mary.setId(5);
+            jane.setName("Jane Roe");
+            fileDAO.saveAll(List.of(jane, mary));
+            assertEquals(2, fileDAO.count());
+
+            try (Connection conn = DriverManager.getConnection(url)) {
+                conn.createStatement().execute("DROP TABLE users_stats");
+            }
+            var reopened = new UserDAOSqliteImpl(url);
+            assertEquals(2, reopened.stats().count());
+            assertEquals(5, reopened.stats().lastId());
+        }
+    
+        @Test
+        public void replaceAllSwapsTheContentsInOneTransaction() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("replace.db").getAbsolutePath());
+            fileDAO.create(new User("John Doe", "john@example.com"));
+            fileDAO.create(new User("Jane Doe", "jane@example.com"));
+
+            var duplicate = new User("Mary Smith", "mary@example.com");
+            duplicate.setId(7);
+            var clash = new User("Mary Roe", "mary@example.com");
+            clash.setId(8);
+            try {
+                fileDAO.replaceAll(List.of(duplicate, clash));
+                fail("Expected duplicated emails to be rejected");
+            } catch (RuntimeException expected) {
+                assertEquals(2, fileDAO.count());
+            }
+
+            var mary = new User("Mary Smith", "jane@example.com");
+            mary.setId(7);
+            mary.setVersion(4);
+            fileDAO.replaceAll(List.of(mary));
+            assertEquals(List.of(mary), fileDAO.getAll());
+            assertEquals(4, fileDAO.findById(7).orElseThrow().getVersion());
+            assertEquals(1, fileDAO.stats().count());
+            assertEquals(List.of(), fileDAO.search("john", 10));
+        }
+
+        @Test
+        public void conditionalChangeRejectsAStaleVersion() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("versions.db").getAbsolutePath());
+            User john = fileDAO.create(new User("John Doe", "john@example.com"));
+            assertEquals(1, john.getVersion());
+
+            User renamed = fileDAO.change(new User("John Roe", "john@example.com"), john.getId(), 1).orElseThrow();
+            assertEquals(2, renamed.getVersion());
+
+            try {
+                fileDAO.change(new User("John Moe", "john@example.com"), john.getId(), 1);
+                fail("Expected VersionConflictException was not thrown");
+            } catch (VersionConflictException e) {
+                assertEquals(2, e.getCurrentVersion());
+            }
+            assertEquals("John Roe", fileDAO.findById(john.getId()).orElseThrow().getName());
+
+            try {
+                fileDAO.delete(john.getId(), 1);
+                fail("Expected VersionConflictException was not thrown");
+            } catch (VersionConflictException e) {
+                assertTrue(fileDAO.findById(john.getId()).isPresent());
+            }
+            fileDAO.delete(john.getId(), 2);
+            assertTrue(fileDAO.findById(john.getId()).isEmpty());
+        }
+    
+        @Test
+        public void patchChangesOnlyTheSuppliedFields() throws Exception {
+            var fileDAO = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.newFile("patch.db").getAbsolutePath());
+            User john = fileDAO.create(new User("John Doe", "john@example.com"));
+            fileDAO.create(new User("Jane Doe", "jane@example.com"));
+
+            User patched = fileDAO.patch(john.getId(), new User("John Roe", null)).orElseThrow();
+            assertEquals("John Roe", patched.getName());
+            assertEquals("john@example.com", patched.getEmail());
+            assertEquals(2, patched.getVersion());
+
+            try {
+                fileDAO.patch(john.getId(), new User(null, "jane@example.com"));
+                fail("Expected duplicate email to be rejected");
+            } catch (RuntimeException e) {
+                assertEquals("john@example.com", fileDAO.findById(john.getId()).orElseThrow().getEmail());
+            }
+            assertTrue(fileDAO.patch(9999, new User("Nobody", null)).isEmpty());
+        }
+
+        private static List<Integer> ids(List<User> users) {
+            return users.stream().map(User::getId).toList();
+        }
+    }
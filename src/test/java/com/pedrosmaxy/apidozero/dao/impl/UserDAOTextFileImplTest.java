@@ -3,6 +3,7 @@
 
             import com.pedrosmaxy.apidozero.entities.User;
             import com.pedrosmaxy.apidozero.dao.UserDAO;
+            import com.pedrosmaxy.apidozero.dao.UserQuery;
             import org.junit.Before;
             import org.junit.Rule;
             import org.junit.Test;
@@ -10,8 +11,16 @@
 
             import java.io.File;
             import java.io.IOException;
+            import java.time.Duration;
+            import java.util.ArrayList;
+            import java.util.HashSet;
             import java.util.List;
             import java.util.Optional;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Future;
+            import java.util.concurrent.TimeUnit;
 
             import static org.junit.Assert.*;
 
@@ -83,4 +92,239 @@
                     Optional<User> retrieved = userDAO.findById(user.getId());
                     assertFalse("User should be deleted", retrieved.isPresent());
                 }
-            }
\ No newline at end of file
+            
+                @Test
+                public void searchFindsCreatedUsersAndForgetsDeletedOnes() {
+                    User john = userDAO.create(new User("John Doe", "john@example.com"));
+                    userDAO.create(new User("Jane Smith", "jane@example.com"));
+
+                    assertEquals(2, userDAO.search("example", 10).size());
+                    assertEquals("John Doe", userDAO.search("doe", 10).get(0).getName());
+
+                    userDAO.delete(john.getId());
+                    assertTrue(userDAO.search("doe", 10).isEmpty());
+                }
+            
+                @Test
+                public void findFiltersAndSortsLikeTheOtherBackends() {
+                    userDAO.create(new User("john Doe", "john@example.com"));
+                    User jane = userDAO.create(new User("Jane Smith", "jane@Example.com"));
+                    userDAO.create(new User("Joan Roe", "joan@sample.org"));
+                    userDAO.create(new User("Émile Zola", "emile@example.com"));
+                    userDAO.change(new User("Jane Roe", "jane@Example.com"), jane.getId());
+
+                    List<User> found = userDAO.find(new UserQuery(UserQuery.Sort.NAME, true, "jo", null));
+                    assertEquals(List.of("john Doe", "Joan Roe"), found.stream().map(User::getName).toList());
+
+                    found = userDAO.find(new UserQuery(UserQuery.Sort.EMAIL, false, null, "EXAMPLE.com"));
+                    assertEquals(List.of("emile@example.com", "jane@Example.com", "john@example.com"),
+                            found.stream().map(User::getEmail).toList());
+                    assertEquals(2, found.get(1).getVersion());
+
+                    assertTrue(userDAO.find(new UserQuery(UserQuery.Sort.ID, false, "é", null)).isEmpty());
+                    assertEquals(1, userDAO.find(new UserQuery(UserQuery.Sort.ID, false, "É", null)).size());
+                }
+            
+                @Test
+                public void findByIdAndFindAnswerFromTheSameState() {
+                    User john = userDAO.create(new User("John Doe", "john@example.com"));
+                    User jane = userDAO.create(new User("Jane Doe", "jane@example.com"));
+                    userDAO.patch(john.getId(), new User("John Roe", null));
+                    userDAO.delete(jane.getId());
+
+                    User byId = userDAO.findById(john.getId()).orElseThrow();
+                    assertEquals(List.of(byId), userDAO.find(new UserQuery(UserQuery.Sort.ID, false, null, null)));
+                    assertEquals(2, byId.getVersion());
+                    assertTrue(userDAO.findById(jane.getId()).isEmpty());
+                    assertEquals(userDAO.getAll(), List.of(byId));
+                }
+
+                @Test
+                public void emailsFreedByDeletesAndChangesCanBeReused() {
+                    User john = userDAO.create(new User("John Doe", "john@example.com"));
+                    User jane = userDAO.create(new User("Jane Smith", "jane@example.com"));
+                    userDAO.change(new User("Jane Smith", "jane.smith@example.com"), jane.getId());
+                    userDAO.delete(john.getId());
+
+                    userDAO.create(new User("Jane Doe", "jane@example.com"));
+                    userDAO.create(new User("John Roe", "john@example.com"));
+                    try {
+                        userDAO.create(new User("Another Jane", "jane.smith@example.com"));
+                        fail("Expected duplicate email to be rejected");
+                    } catch (RuntimeException expected) {
+                        assertEquals(3, userDAO.getAll().size());
+                    }
+                }
+            
+                @Test
+                public void statsFollowCreatesAndDeletesAndSurviveReopening() throws IOException {
+                    String path = folder.newFile("stats.txt").getAbsolutePath();
+                    var fileDAO = new UserDAOTextFileImpl(path);
+                    User john = fileDAO.create(new User("John Doe", "john@example.com"));
+                    fileDAO.create(new User("Jane Smith", "jane@example.com"));
+                    fileDAO.delete(john.getId());
+
+                    assertEquals(1, fileDAO.count());
+                    assertEquals(2, fileDAO.stats().lastId());
+                    assertEquals(1, new UserDAOTextFileImpl(path).count());
+                }
+            
+                @Test
+                public void concurrentWritersAndReadersNeverLoseUpdates() throws Exception {
+                    int threads = 8;
+                    int usersPerThread = 25;
+                    var start = new CountDownLatch(1);
+                    List<Future<?>> futures = new ArrayList<>();
+                    ExecutorService pool = Executors.newFixedThreadPool(threads * 2);
+                    try {
+                        for (int t = 0; t < threads; t++) {
+                            int thread = t;
+                            futures.add(pool.submit(() -> {
+                                start.await();
+                                for (int i = 0; i < usersPerThread; i++) {
+                                    userDAO.create(new User("User " + thread + "." + i, "u" + thread + "_" + i + "@example.com"));
+                                }
+                                return null;
+                            }));
+                            futures.add(pool.submit(() -> {
+                                start.await();
+                                for (int i = 0; i < usersPerThread; i++) {
+                                    assertNotNull(userDAO.getAll());
+                                }
+                                return null;
+                            }));
+                        }
+                        start.countDown();
+                        for (Future<?> future : futures) {
+                            future.get(60, TimeUnit.SECONDS);
+                        }
+                    } finally {
+                        pool.shutdownNow();
+                    }
+
+                    List<User> users = userDAO.getAll();
+                    assertEquals(threads * usersPerThread, users.size());
+                    assertEquals(users.size(), users.stream().map(User::getId).distinct().count());
+                    List<User> expected = new ArrayList<>();
+                    for (int t = 0; t < threads; t++) {
+                        for (int i = 0; i < usersPerThread; i++) {
+                            expected.add(new User("User " + t + "." + i, "u" + t + "_" + i + "@example.com"));
+                        }
+                    }
+                    assertEquals(new HashSet<>(expected), new HashSet<>(users));
+                }
+
+                @Test
+                public void namesTheLineFormatCannotHoldAreRejected() {
+                    User john = userDAO.create(new User("John Doe", "john@example.com"));
+                    for (User invalid : List.of(new User("Mary-Jane", "mary@example.com"),
+                            new User("Mary\nJane", "mary@example.com"), new User("Mary", "mary@example.com\r"))) {
+                        try {
+                            userDAO.create(invalid);
+                            fail("Expected " + invalid.getName() + " to be rejected");
+                        } catch (RuntimeException expected) {
+                            assertEquals(1, userDAO.count());
+                        }
+                    }
+                    try {
+                        userDAO.patch(john.getId(), new User("John-Doe", null));
+                        fail("Expected the patch to be rejected");
+                    } catch (RuntimeException expected) {
+                        assertEquals("John Doe", userDAO.findById(john.getId()).orElseThrow().getName());
+                    }
+                }
+
+                @Test
+                public void writeBehindAcknowledgesFirstAndFlushesWithinTheDelay() throws Exception {
+                    String path = folder.newFile("write_behind.txt").getAbsolutePath();
+                    try (var writeBehind = new UserDAOTextFileImpl(path, Duration.ofMillis(300), 1_000)) {
+                        User created = writeBehind.create(new User("Ana", "ana@example.com"));
+
+                        assertTrue(UserTextFile.read(path).isEmpty());
+                        assertEquals("Ana", writeBehind.findById(created.getId()).orElseThrow().getName());
+                        assertEquals(1, writeBehind.flushStats().pendingEntries());
+
+                        awaitFlushes(writeBehind, 1);
+                        assertEquals(List.of(created.toString()), UserTextFile.read(path).stream().map(User::toString).toList());
+                        assertEquals(0, writeBehind.flushStats().pendingEntries());
+                        assertTrue(writeBehind.flushStats().lastFlushLagMillis() >= 300);
+                    }
+                }
+
+                @Test
+                public void writeBehindFlushesAtTheDirtyLimitAndOnClose() throws Exception {
+                    String path = folder.newFile("write_behind_limit.txt").getAbsolutePath();
+                    var writeBehind = new UserDAOTextFileImpl(path, Duration.ofMinutes(10), 5);
+                    for (int i = 1; i <= 5; i++) {
+                        writeBehind.create(new User("User " + i, "user" + i + "@example.com"));
+                    }
+                    awaitFlushes(writeBehind, 1);
+                    assertEquals(5, UserTextFile.read(path).size());
+
+                    writeBehind.create(new User("User 6", "user6@example.com"));
+                    writeBehind.patch(1, new User("Renamed", null));
+                    writeBehind.delete(2);
+                    assertEquals(3, writeBehind.flushStats().pendingEntries());
+                    assertEquals(5, UserTextFile.read(path).size());
+
+                    writeBehind.close();
+
+                    var reopened = new UserDAOTextFileImpl(path);
+                    assertEquals(5, reopened.count());
+                    assertFalse(reopened.findById(2).isPresent());
+                    User renamed = reopened.findById(1).orElseThrow();
+                    assertEquals("Renamed", renamed.getName());
+                    assertEquals(2, renamed.getVersion());
+                    assertEquals(6, reopened.stats().lastId());
+                }
+
+                @Test
+                public void failedFlushIsRetriedByTheFlusher() throws Exception {
+                    File file = folder.newFile("write_behind_retry.txt");
+                    try (var writeBehind = new UserDAOTextFileImpl(file.getAbsolutePath(), Duration.ofMillis(200), 1_000)) {
+                        writeBehind.create(new User("Ana", "ana@example.com"));
+                        // A non-empty directory in the file's place makes the rename fail.
+                        assertTrue(file.delete());
+                        assertTrue(file.mkdir());
+                        File blocker = new File(file, "blocker");
+                        assertTrue(blocker.createNewFile());
+                        try {
+                            writeBehind.flush();
+                            fail("Expected the flush to fail");
+                        } catch (RuntimeException expected) {
+                            assertEquals(1, writeBehind.flushStats().pendingEntries());
+                        }
+
+                        assertTrue(blocker.delete());
+                        assertTrue(file.delete());
+                        awaitFlushes(writeBehind, 1);
+                        assertEquals(1, UserTextFile.read(file.getAbsolutePath()).size());
+                    }
+                }
+
+                @Test
+                public void writeBehindRejectsWritesAfterClose() throws Exception {
+                    String path = folder.newFile("write_behind_closed.txt").getAbsolutePath();
+                    var writeBehind = new UserDAOTextFileImpl(path, Duration.ofMinutes(10), 1_000);
+                    writeBehind.create(new User("Ana", "ana@example.com"));
+                    writeBehind.close();
+
+                    try {
+                        writeBehind.create(new User("Bia", "bia@example.com"));
+                        fail("Expected writes after close to fail");
+                    } catch (RuntimeException expected) {
+                        assertFalse(expected instanceof java.util.concurrent.RejectedExecutionException);
+                    }
+                    assertEquals(1, writeBehind.count());
+                    assertTrue(writeBehind.search("bia", 10).isEmpty());
+                    assertEquals(1, writeBehind.getAll().size());
+                }
+
+                private static void awaitFlushes(UserDAOTextFileImpl writeBehind, long flushes) throws InterruptedException {
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                    while (writeBehind.flushStats().flushes() < flushes) {
+                        assertTrue("no flush within 10 s", System.nanoTime() < deadline);
+                        Thread.sleep(10);
+                    }
+                }
+            }
@@ -0,0 +1,44 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class UserStoresTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void opensEveryBackend() throws Exception {
+        File dir = folder.getRoot();
+        assertTrue(UserStores.open("sqlite:" + new File(dir, "users.db")) instanceof UserDAOSqliteImpl);
+        assertTrue(UserStores.open("memory") instanceof UserDAOMemoryImpl);
+        assertTrue(UserStores.open("offheap") instanceof UserDAOOffHeapImpl);
+
+        UserDAO text = UserStores.open("text:" + new File(dir, "users.txt"));
+        UserDAO writeBehind = UserStores.open("text-write-behind:" + new File(dir, "pending.txt"));
+        UserDAO snapshots = UserStores.open("memory:" + new File(dir, "snapshot.txt"));
+        UserDAO wal = UserStores.open("wal:" + new File(dir, "wal"));
+        try {
+            assertTrue(text instanceof UserDAOTextFileImpl);
+            assertTrue(writeBehind instanceof UserDAOTextFileImpl);
+            assertTrue(snapshots instanceof UserDAOMemoryImpl);
+            assertTrue(wal instanceof UserDAOMemoryImpl);
+        } finally {
+            ((AutoCloseable) writeBehind).close();
+            ((AutoCloseable) snapshots).close();
+            ((AutoCloseable) wal).close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownStoresAreRejected() {
+        UserStores.open("postgres:users");
+    }
+}
@@ -0,0 +1,63 @@
+package com.pedrosmaxy.apidozero.dao.impl;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserTextFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelChunksPreserveFileOrder() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 5_000; i++) {
+            User user = new User("Usuário " + i, "user" + i + "@example.com");
+            user.setId(i);
+            users.add(user);
+        }
+        File file = folder.newFile("base.txt");
+        UserTextFile.writeAtomically(file.getAbsolutePath(), users);
+
+        // Small chunks force many splits, including inside multi-byte characters.
+        assertEquals(users, UserTextFile.read(file.toPath(), 997));
+        assertEquals(users, UserTextFile.read(file.getAbsolutePath()));
+    }
+
+    @Test
+    public void toleratesCrLfAndBlankLines() throws IOException {
+        File file = folder.newFile("crlf.txt");
+        Files.writeString(file.toPath(), "1-John Doe-john@example.com\r\n\n2-Jane-jane@example.com", StandardCharsets.UTF_8);
+
+        List<User> users = UserTextFile.read(file.toPath(), 8);
+
+        assertEquals(2, users.size());
+        assertEquals("john@example.com", users.get(0).getEmail());
+        assertEquals(Integer.valueOf(2), users.get(1).getId());
+        assertEquals("jane@example.com", users.get(1).getEmail());
+    }
+
+    @Test
+    public void missingOrEmptyFileReadsAsEmpty() throws IOException {
+        assertTrue(UserTextFile.read(new File(folder.getRoot(), "missing.txt").getAbsolutePath()).isEmpty());
+        assertTrue(UserTextFile.read(folder.newFile("empty.txt").getAbsolutePath()).isEmpty());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void malformedLineIsRejected() throws IOException {
+        File file = folder.newFile("bad.txt");
+        Files.writeString(file.toPath(), "x-John-john@example.com\n", StandardCharsets.UTF_8);
+
+        UserTextFile.read(file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,102 @@
+package com.pedrosmaxy.apidozero.events;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UserChangeFeedTest {
+
+    @Test
+    public void publishAssignsIncreasingSequenceNumbers() {
+        UserChangeFeed feed = new UserChangeFeed();
+
+        long first = feed.publish(UserChangeEvent.Type.CREATED, 1, createUser(1, "John Doe", "john@example.com"));
+        long second = feed.publish(UserChangeEvent.Type.DELETED, 1, null);
+
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(2, feed.currentSequence());
+    }
+
+    @Test
+    public void subscriberReceivesLiveEvents() throws InterruptedException {
+        UserChangeFeed feed = new UserChangeFeed();
+
+        try (var subscription = feed.subscribe(-1)) {
+            feed.publish(UserChangeEvent.Type.CREATED, 1, createUser(1, "John Doe", "john@example.com"));
+
+            UserChangeEvent event = subscription.poll(1, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(UserChangeEvent.Type.CREATED, event.type());
+            assertEquals("john@example.com", event.user().getEmail());
+        }
+    }
+
+    @Test
+    public void subscriberCanResumeFromSequence() throws InterruptedException {
+        UserChangeFeed feed = new UserChangeFeed();
+        feed.publish(UserChangeEvent.Type.CREATED, 1, createUser(1, "One", "one@example.com"));
+        feed.publish(UserChangeEvent.Type.CREATED, 2, createUser(2, "Two", "two@example.com"));
+        feed.publish(UserChangeEvent.Type.CREATED, 3, createUser(3, "Three", "three@example.com"));
+
+        try (var subscription = feed.subscribe(1)) {
+            assertFalse(subscription.isReset());
+            assertEquals(2, subscription.poll(1, TimeUnit.SECONDS).sequence());
+            assertEquals(3, subscription.poll(1, TimeUnit.SECONDS).sequence());
+        }
+    }
+
+    @Test
+    public void resumeBeyondRetainedHistoryIsFlaggedAsReset() throws InterruptedException {
+        UserChangeFeed feed = new UserChangeFeed(2, 16);
+        for (int id = 1; id <= 5; id++) {
+            feed.publish(UserChangeEvent.Type.DELETED, id, null);
+        }
+
+        try (var subscription = feed.subscribe(0)) {
+            assertTrue(subscription.isReset());
+            assertEquals(4, subscription.poll(1, TimeUnit.SECONDS).sequence());
+        }
+    }
+
+    @Test
+    public void resumeFromAheadOfTheFeedIsFlaggedAsReset() throws InterruptedException {
+        UserChangeFeed feed = new UserChangeFeed();
+        feed.publish(UserChangeEvent.Type.DELETED, 1, null);
+
+        try (var subscription = feed.subscribe(7)) {
+            assertTrue(subscription.isReset());
+            feed.publish(UserChangeEvent.Type.DELETED, 2, null);
+            assertEquals(2, subscription.poll(1, TimeUnit.SECONDS).sequence());
+        }
+        try (var subscription = feed.subscribe(1)) {
+            assertFalse(subscription.isReset());
+        }
+    }
+
+    @Test
+    public void slowSubscriberIsDropped() throws InterruptedException {
+        UserChangeFeed feed = new UserChangeFeed(16, 2);
+
+        try (var subscription = feed.subscribe(-1)) {
+            for (int id = 1; id <= 3; id++) {
+                feed.publish(UserChangeEvent.Type.DELETED, id, null);
+            }
+
+            assertEquals(0, feed.subscriberCount());
+            assertNotNull(subscription.poll(10, TimeUnit.MILLISECONDS));
+            assertNotNull(subscription.poll(10, TimeUnit.MILLISECONDS));
+            assertNull(subscription.poll(10, TimeUnit.MILLISECONDS));
+            assertTrue(subscription.isDropped());
+        }
+    }
+
+    private User createUser(int id, String name, String email) {
+        User user = new User(name, email);
+        user.setId(id);
+        return user;
+    }
+}
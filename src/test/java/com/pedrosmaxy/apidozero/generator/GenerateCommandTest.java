@@ -0,0 +1,65 @@
+package com.pedrosmaxy.apidozero.generator;
+
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOSqliteImpl;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOTextFileImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GenerateCommandTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheTextFileFormat() throws Exception {
+        String file = folder.getRoot().toPath().resolve("base.txt").toString();
+
+        assertEquals(0, GenerateCommand.run(new String[]{"--to", "text:" + file, "--count", "2500",
+                "--seed", "5", "--batch-size", "1000", "--threads", "3"}));
+
+        var userDAO = new UserDAOTextFileImpl(file);
+        assertGenerated(userDAO, 5, 2_500);
+        assertEquals(1, GenerateCommand.run(new String[]{"--to", "text:" + file, "--count", "10"}));
+    }
+
+    @Test
+    public void bulkLoadsSqliteAndRebuildsItsIndexes() throws Exception {
+        String url = "jdbc:sqlite:" + folder.getRoot().toPath().resolve("base.db");
+
+        assertEquals(0, GenerateCommand.run(new String[]{"--to", url, "--count", "2500",
+                "--seed", "5", "--batch-size", "1000", "--threads", "3"}));
+
+        var userDAO = new UserDAOSqliteImpl(url);
+        assertGenerated(userDAO, 5, 2_500);
+        assertEquals(2_500, userDAO.stats().lastId());
+        User first = new UserGenerator(5).user(1);
+        assertTrue(userDAO.search(first.getEmail(), 5).stream().anyMatch(user -> user.getId() == 1));
+
+        var extra = new User();
+        extra.setName("Extra");
+        extra.setEmail("extra@example.com");
+        assertEquals(2_501, (int) userDAO.create(extra).getId());
+        assertEquals(2_501, userDAO.count());
+        assertEquals(1, GenerateCommand.run(new String[]{"--to", url, "--count", "10"}));
+    }
+
+    @Test
+    public void rejectsUnknownStores() {
+        assertEquals(2, GenerateCommand.run(new String[]{"--to", "wal:dir", "--count", "10"}));
+        assertEquals(2, GenerateCommand.run(new String[]{"--to", "text:base.txt"}));
+    }
+
+    private static void assertGenerated(UserDAO userDAO, long seed, int count) {
+        List<User> stored = userDAO.getAll().stream().sorted(Comparator.comparingInt(User::getId)).toList();
+        assertEquals(count, userDAO.count());
+        assertEquals(new UserGenerator(seed).users(1, count).toString(), stored.toString());
+    }
+}
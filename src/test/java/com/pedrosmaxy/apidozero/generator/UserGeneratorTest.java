@@ -0,0 +1,56 @@
+package com.pedrosmaxy.apidozero.generator;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class UserGeneratorTest {
+
+    @Test
+    public void sameSeedGivesTheSameUsers() {
+        List<User> first = new UserGenerator(7).users(1, 1_000);
+        List<User> again = new UserGenerator(7).users(1, 1_000);
+        List<User> other = new UserGenerator(8).users(1, 1_000);
+
+        assertEquals(first.toString(), again.toString());
+        assertNotEquals(first.toString(), other.toString());
+        assertEquals(first.get(499).toString(), new UserGenerator(7).user(500).toString());
+    }
+
+    @Test
+    public void emailsAreUniqueAndNamesVaryInLength() {
+        Set<String> emails = new HashSet<>();
+        int shortest = Integer.MAX_VALUE;
+        int longest = 0;
+        for (User user : new UserGenerator(1).users(1, 100_000)) {
+            assertTrue(user.getEmail(), emails.add(user.getEmail()));
+            assertTrue(user.getEmail(), user.getEmail().matches("[a-z._]+\\d+@[a-z.]+"));
+            assertFalse(user.getName(), user.getName().contains("-"));
+            shortest = Math.min(shortest, user.getName().length());
+            longest = Math.max(longest, user.getName().length());
+        }
+        assertTrue("shortest " + shortest, shortest <= 8);
+        assertTrue("longest " + longest, longest >= 40 && longest <= 100);
+    }
+
+    @Test
+    public void batchesComeInIdOrderWhateverTheThreads() {
+        List<User> generated = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        try (var batches = new UserGenerator(3).batches(2_500, 1_000, 4)) {
+            batches.forEachRemaining(batch -> {
+                sizes.add(batch.size());
+                generated.addAll(batch);
+            });
+        }
+
+        assertEquals(List.of(1_000, 1_000, 500), sizes);
+        assertEquals(new UserGenerator(3).users(1, 2_500).toString(), generated.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package com.pedrosmaxy.apidozero.migration;
+
+import com.pedrosmaxy.apidozero.dao.ForwardingUserDAO;
+import com.pedrosmaxy.apidozero.dao.UserDAO;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOMemoryImpl;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOSqliteImpl;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOTextFileImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class UserMigrationTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void copiesTextFileStoreToSqliteWithParallelWriters() throws IOException {
+        UserDAO source = new UserDAOTextFileImpl(folder.newFile("base.txt").getAbsolutePath());
+        for (int i = 1; i <= 100; i++) {
+            source.create(new User("User " + i, "user" + i + "@example.com"));
+        }
+        source.delete(50);
+        UserDAO target = new UserDAOSqliteImpl("jdbc:sqlite:" + folder.getRoot().toPath().resolve("target.db"));
+
+        var migration = new UserMigration(source, target, 7, 3, null);
+        UserMigration.Result result = migration.run();
+
+        assertEquals(99, result.copied());
+        assertTrue(migration.verify().matches());
+        assertEquals("user100@example.com", target.findById(100).orElseThrow().getEmail());
+        assertEquals(Integer.valueOf(101), target.create(new User("New", "new@example.com")).getId());
+    }
+
+    @Test
+    public void resumesFromCheckpointAfterAFailedBatch() throws IOException {
+        UserDAO source = new UserDAOMemoryImpl();
+        for (int i = 1; i <= 40; i++) {
+            source.create(new User("User " + i, "user" + i + "@example.com"));
+        }
+        UserDAO storage = new UserDAOMemoryImpl();
+        var failOnce = new AtomicBoolean(true);
+        UserDAO flakyTarget = new ForwardingUserDAO(storage) {
+            @Override
+            public void saveAll(List<User> users) {
+                if (users.get(0).getId() == 21 && failOnce.getAndSet(false)) {
+                    throw new RuntimeException("disk full");
+                }
+                super.saveAll(users);
+            }
+        };
+        Path checkpoint = folder.getRoot().toPath().resolve("migration.checkpoint");
+
+        try {
+            new UserMigration(source, flakyTarget, 10, 1, checkpoint).run();
+            fail("Expected the migration to fail");
+        } catch (RuntimeException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertEquals("20", Files.readString(checkpoint));
+
+        UserMigration.Result result = new UserMigration(source, flakyTarget, 10, 1, checkpoint).run();
+
+        assertEquals(20, result.resumedAfterId());
+        assertEquals(20, result.copied());
+        assertEquals(40, storage.getAll().size());
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    public void verificationDetectsDifferences() {
+        UserDAO source = new UserDAOMemoryImpl();
+        UserDAO target = new UserDAOMemoryImpl();
+        source.create(new User("John Doe", "john@example.com"));
+        target.create(new User("John Doe", "john@example.org"));
+
+        assertFalse(new UserMigration(source, target, 10, 1, null).verify().matches());
+    }
+}
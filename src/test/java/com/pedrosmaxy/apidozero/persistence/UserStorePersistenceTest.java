@@ -0,0 +1,110 @@
+package com.pedrosmaxy.apidozero.persistence;
+
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOMemoryImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class UserStorePersistenceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void logIsReplayedWithoutACheckpoint() {
+        Path directory = folder.getRoot().toPath();
+        var store = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.EVERY_OPERATION));
+        User john = store.create(new User("John Doe", "john@example.com"));
+        User jane = store.create(new User("Jane Smith", "jane@example.com"));
+        store.change(new User("Jane Roe", "jane@example.com"), jane.getId());
+        store.delete(john.getId());
+        // simulate a crash: no close(), so no checkpoint is taken
+
+        var recovered = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.EVERY_OPERATION));
+        List<User> users = recovered.getAll();
+        assertEquals(1, users.size());
+        assertEquals("Jane Roe", users.get(0).getName());
+        assertEquals(Integer.valueOf(3), recovered.create(new User("Next", "next@example.com")).getId());
+    }
+
+    @Test
+    public void checkpointWritesSnapshotAndTrimsTheLog() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (var store = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.GROUP))) {
+            for (int i = 0; i < 50; i++) {
+                store.create(new User("User " + i, "user" + i + "@example.com"));
+            }
+            store.snapshot();
+            store.delete(50);
+        }
+
+        assertTrue(Files.exists(directory.resolve("users.snapshot")));
+        assertEquals(1, countSegments(directory));
+
+        var recovered = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.GROUP));
+        assertEquals(49, recovered.getAll().size());
+        assertEquals(Integer.valueOf(51), recovered.create(new User("Next", "next@example.com")).getId());
+    }
+
+    @Test
+    public void tornTailIsDiscardedOnRecovery() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        var store = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.EVERY_OPERATION));
+        store.create(new User("John Doe", "john@example.com"));
+        store.create(new User("Jane Smith", "jane@example.com"));
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (var channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        var recovered = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.EVERY_OPERATION));
+        assertEquals(1, recovered.getAll().size());
+        recovered.create(new User("Jane Smith", "jane@example.com"));
+
+        var again = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.EVERY_OPERATION));
+        assertEquals(2, again.getAll().size());
+    }
+
+    @Test
+    public void concurrentGroupCommitKeepsEveryWrite() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (var store = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.GROUP))) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                writers.add(Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        store.create(new User("User", "user" + thread + "-" + i + "@example.com"));
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+
+        var recovered = new UserDAOMemoryImpl(new UserStorePersistence(directory, FsyncPolicy.GROUP));
+        assertEquals(400, recovered.getAll().size());
+    }
+
+    private long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+}
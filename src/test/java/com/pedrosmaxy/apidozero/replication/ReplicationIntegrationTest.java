@@ -0,0 +1,142 @@
+package com.pedrosmaxy.apidozero.replication;
+
+import com.pedrosmaxy.apidozero.Main;
+import com.pedrosmaxy.apidozero.dao.impl.UserDAOMemoryImpl;
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class ReplicationIntegrationTest {
+
+    private Main.Node leader;
+    private Main.Node follower;
+
+    @Before
+    public void setup() throws IOException {
+        leader = Main.start(0, new UserDAOMemoryImpl(), null);
+    }
+
+    @After
+    public void tearDown() {
+        if (follower != null) {
+            follower.close();
+        }
+        leader.close();
+    }
+
+    @Test
+    public void followerCatchesUpFromSnapshotAndThenFollowsTheStream() throws Exception {
+        leader.userDAO().create(new User("John Doe", "john@example.com"));
+        leader.userDAO().create(new User("Jane Doe", "jane@example.com"));
+
+        follower = Main.start(0, new UserDAOMemoryImpl(), leaderUrl());
+        awaitTrue(() -> follower.userDAO().getAll().size() == 2);
+
+        User bob = leader.userDAO().create(new User("Bob", "bob@example.com"));
+        leader.userDAO().change(new User("John Smith", "john@example.com"), 1);
+        leader.userDAO().delete(2);
+
+        awaitTrue(() -> follower.follower().status().appliedSequence() == leader.userDAO().getChangeFeed().currentSequence());
+        List<User> replicated = follower.userDAO().getAll();
+        assertEquals(leader.userDAO().getAll(), replicated);
+        assertEquals("John Smith", follower.userDAO().findById(1).orElseThrow().getName());
+        assertTrue(follower.userDAO().findById(bob.getId()).isPresent());
+        assertEquals(0, follower.follower().status().lagEvents());
+    }
+
+    @Test
+    public void snapshotReplacesWhateverTheFollowerHeld() throws Exception {
+        leader.userDAO().create(new User("John Doe", "john@example.com"));
+        leader.userDAO().create(new User("Jane Doe", "jane@example.com"));
+
+        var local = new UserDAOMemoryImpl();
+        local.create(new User("Stale", "jane@example.com"));
+        local.create(new User("Gone", "gone@example.com"));
+        local.create(new User("Also Gone", "also.gone@example.com"));
+
+        follower = Main.start(0, local, leaderUrl());
+        awaitTrue(() -> follower.follower().status().appliedSequence() == leader.userDAO().getChangeFeed().currentSequence()
+                && follower.userDAO().getAll().size() == 2);
+        assertEquals(leader.userDAO().getAll(), follower.userDAO().getAll());
+        assertEquals(List.of(), follower.userDAO().search("gone", 10));
+    }
+
+    @Test
+    public void followerReloadsTheSnapshotWhenTheLeaderRestarts() throws Exception {
+        leader.userDAO().create(new User("John Doe", "john@example.com"));
+        leader.userDAO().create(new User("Jane Doe", "jane@example.com"));
+        follower = Main.start(0, new UserDAOMemoryImpl(), leaderUrl());
+        awaitTrue(() -> follower.follower().status().appliedSequence() == 2);
+
+        // The new run's sequence passes the follower's before it reconnects.
+        int port = leader.port();
+        leader.close();
+        var restarted = new UserDAOMemoryImpl();
+        restarted.create(new User("Bob", "bob@example.com"));
+        leader = Main.start(port, restarted, null);
+        leader.userDAO().create(new User("Mary", "mary@example.com"));
+        leader.userDAO().create(new User("Ann", "ann@example.com"));
+        leader.userDAO().create(new User("Joe", "joe@example.com"));
+
+        awaitTrue(() -> follower.userDAO().getAll().equals(leader.userDAO().getAll()));
+        assertTrue(follower.userDAO().search("john", 10).isEmpty());
+    }
+
+    @Test
+    public void followerRedirectsWritesToTheLeader() throws Exception {
+        follower = Main.start(0, new UserDAOMemoryImpl(), leaderUrl());
+
+        var connection = (HttpURLConnection) URI.create(nodeUrl(follower) + "/api/user").toURL().openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write("{\"name\": \"Bob\", \"email\": \"bob@example.com\"}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(307, connection.getResponseCode());
+        assertEquals(leaderUrl() + "/api/user", connection.getHeaderField("Location"));
+        connection.disconnect();
+    }
+
+    @Test
+    public void statusReportsFollowerLag() throws Exception {
+        follower = Main.start(0, new UserDAOMemoryImpl(), leaderUrl());
+        awaitTrue(() -> follower.follower().status().connected());
+
+        var connection = (HttpURLConnection) URI.create(nodeUrl(follower) + "/api/replication/status").toURL().openConnection();
+        assertEquals(200, connection.getResponseCode());
+        String body = new String(connection.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"role\": \"follower\""));
+        assertTrue(body.contains("\"lagEvents\": 0"));
+    }
+
+    private String leaderUrl() {
+        return nodeUrl(leader);
+    }
+
+    private static String nodeUrl(Main.Node node) {
+        return "http://localhost:" + node.port();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition not met before timeout");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
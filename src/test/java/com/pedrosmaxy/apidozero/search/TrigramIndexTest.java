@@ -0,0 +1,67 @@
+package com.pedrosmaxy.apidozero.search;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @Before
+    public void setUp() {
+        index = new TrigramIndex();
+        index.put(createUser(1, "John Doe", "john@example.com"));
+        index.put(createUser(2, "Jane Johnson", "jane@example.com"));
+        index.put(createUser(3, "Mary Smith", "mary@sample.org"));
+    }
+
+    @Test
+    public void substringQueryMatchesNameAndEmail() {
+        List<User> users = index.search("ampl", 10);
+        assertEquals(3, users.size());
+    }
+
+    @Test
+    public void prefixMatchesRankBeforeSubstringMatches() {
+        List<User> users = index.search("joh", 10);
+
+        assertEquals(2, users.size());
+        assertEquals(Integer.valueOf(1), users.get(0).getId());
+        assertEquals(Integer.valueOf(2), users.get(1).getId());
+    }
+
+    @Test
+    public void shortQueryMatchesWordPrefixes() {
+        List<User> users = index.search("sm", 10);
+
+        assertEquals(1, users.size());
+        assertEquals("Mary Smith", users.get(0).getName());
+    }
+
+    @Test
+    public void searchIsCaseInsensitiveAndRespectsLimit() {
+        assertEquals(1, index.search("JOHN", 1).size());
+    }
+
+    @Test
+    public void removedAndChangedUsersAreReindexed() {
+        index.remove(1);
+        index.put(createUser(3, "Mary Jones", "mary@sample.org"));
+
+        assertEquals(1, index.search("john", 10).size());
+        assertTrue(index.search("smith", 10).isEmpty());
+        assertEquals(1, index.search("jones", 10).size());
+        assertEquals(2, index.size());
+    }
+
+    private User createUser(int id, String name, String email) {
+        User user = new User(name, email);
+        user.setId(id);
+        return user;
+    }
+}
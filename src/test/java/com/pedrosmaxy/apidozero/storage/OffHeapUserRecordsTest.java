@@ -0,0 +1,65 @@
+package com.pedrosmaxy.apidozero.storage;
+
+import com.pedrosmaxy.apidozero.entities.User;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OffHeapUserRecordsTest {
+
+    @Test
+    public void storesAndMaterialisesRecords() {
+        OffHeapUserRecords records = new OffHeapUserRecords();
+        records.put(1, "João Silva", "joao@example.com");
+
+        User user = records.read(1);
+        assertEquals(Integer.valueOf(1), user.getId());
+        assertEquals("João Silva", user.getName());
+        assertEquals("joao@example.com", user.getEmail());
+        assertNull(records.read(2));
+    }
+
+    @Test
+    public void emailIndexFollowsUpdatesAndRemovals() {
+        OffHeapUserRecords records = new OffHeapUserRecords();
+        records.put(1, "John Doe", "john@example.com");
+        records.put(1, "John Doe", "johnny@example.com");
+
+        assertEquals(0, records.findIdByEmail("john@example.com"));
+        assertEquals(1, records.findIdByEmail("johnny@example.com"));
+
+        assertTrue(records.remove(1));
+        assertEquals(0, records.findIdByEmail("johnny@example.com"));
+        assertFalse(records.remove(1));
+    }
+
+    @Test
+    public void compactionKeepsEveryLiveRecord() {
+        OffHeapUserRecords records = new OffHeapUserRecords(1024);
+        Map<Integer, String> reference = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            int id = 1 + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                records.remove(id);
+                reference.remove(id);
+            } else {
+                String email = "user" + id + "-" + i + "@example.com";
+                records.put(id, "User " + i, email);
+                reference.put(id, email);
+            }
+        }
+
+        assertEquals(reference.size(), records.size());
+        for (var entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), records.read(entry.getKey()).getEmail());
+            assertEquals((int) entry.getKey(), records.findIdByEmail(entry.getValue()));
+        }
+        assertTrue(records.reservedBytes() < 4 * records.liveBytes() + 2 * 1024);
+    }
+}
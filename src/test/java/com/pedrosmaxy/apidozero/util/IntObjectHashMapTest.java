@@ -0,0 +1,72 @@
+package com.pedrosmaxy.apidozero.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class IntObjectHashMapTest {
+
+    @Test
+    public void putGetAndRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertNull(map.get(2));
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.get(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void behavesLikeHashMapUnderRandomOperations() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>(4);
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(reference.remove(key), map.remove(key));
+            } else {
+                assertEquals(reference.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(reference.size(), map.size());
+        for (var entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(reference.size(), map.values().size());
+    }
+
+    @Test
+    public void getNeverThrowsWhileAnotherThreadClears() throws Exception {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        var done = new AtomicBoolean();
+        var reader = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                map.get(1);
+            }
+        });
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                map.put(1, "a");
+                map.clear();
+            }
+        } finally {
+            done.set(true);
+        }
+        reader.get(5, TimeUnit.SECONDS);
+        assertNull(map.get(1));
+    }
+}
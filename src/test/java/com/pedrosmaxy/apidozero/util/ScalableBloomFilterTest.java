@@ -0,0 +1,47 @@
+package com.pedrosmaxy.apidozero.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    public void neverForgetsAnAddedValueWhileGrowing() {
+        var filter = new ScalableBloomFilter(16, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+        assertTrue(filter.size() > 9_800);
+    }
+
+    @Test
+    public void keepsFalsePositivesNearTheRequestedRate() {
+        var filter = new ScalableBloomFilter(64, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (filter.mightContain("other" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 20_000 * 0.02);
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        var filter = new ScalableBloomFilter(16, 0.01);
+        filter.add("john@example.com");
+        filter.clear();
+
+        assertFalse(filter.mightContain("john@example.com"));
+        assertEquals(0, filter.size());
+    }
+}
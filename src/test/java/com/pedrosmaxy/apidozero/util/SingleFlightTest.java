@@ -0,0 +1,64 @@
+package com.pedrosmaxy.apidozero.util;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<Integer, String> flight = new SingleFlight<>();
+
+    @Test
+    public void concurrentCallersShareTheInFlightCall() {
+        var calls = new AtomicInteger();
+        var backend = new CompletableFuture<String>();
+
+        CompletableFuture<String> first = flight.execute(1, () -> {
+            calls.incrementAndGet();
+            return backend;
+        });
+        CompletableFuture<String> second = flight.execute(1, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        backend.complete("value");
+
+        assertEquals(1, calls.get());
+        assertEquals("value", first.join());
+        assertEquals("value", second.join());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    public void completedCallsAreNotCached() {
+        var calls = new AtomicInteger();
+
+        flight.execute(1, () -> CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+        String second = flight.execute(1, () -> CompletableFuture.completedFuture("v" + calls.incrementAndGet())).join();
+
+        assertEquals("v2", second);
+    }
+
+    @Test
+    public void failuresArePropagatedToEveryCaller() throws InterruptedException {
+        var backend = new CompletableFuture<String>();
+        CompletableFuture<String> first = flight.execute(1, () -> backend);
+        CompletableFuture<String> second = flight.execute(1, () -> backend);
+        backend.completeExceptionally(new IllegalStateException("boom"));
+
+        for (CompletableFuture<String> future : List.of(first, second)) {
+            try {
+                future.get();
+                fail("Expected failure");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(0, flight.inFlightCount());
+    }
+}